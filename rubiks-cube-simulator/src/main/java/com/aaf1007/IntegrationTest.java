@@ -6,6 +6,7 @@ import javafx.scene.paint.Color;
 import javafx.scene.transform.Rotate;
 import javafx.stage.Stage;
 import com.aaf1007.rubikscube.Cubie;
+import com.aaf1007.rubikscube.Tables;
 
 public class IntegrationTest extends Application {
     
@@ -14,6 +15,9 @@ public class IntegrationTest extends Application {
     
     @Override
     public void start(Stage primaryStage) {
+        // Build the solver tables while the user looks at the cube
+        Tables.loadInBackground();
+
         // Create solver cube
         solverCubie = new Cubie();
         
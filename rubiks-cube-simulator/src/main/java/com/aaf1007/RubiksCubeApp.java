@@ -6,6 +6,8 @@ import javafx.scene.paint.Color;
 import javafx.scene.transform.Rotate;
 import javafx.stage.Stage;
 
+import com.aaf1007.rubikscube.Tables;
+
 public class RubiksCubeApp extends Application {
     
     private double anchorX, anchorY;
@@ -16,6 +18,9 @@ public class RubiksCubeApp extends Application {
     
     @Override
     public void start(Stage primaryStage) {
+        // Build the solver tables while the user looks at the cube
+        Tables.loadInBackground();
+
         // Create the 3D Rubik's Cube
         RubiksCubeVisual cube = new RubiksCubeVisual();
         
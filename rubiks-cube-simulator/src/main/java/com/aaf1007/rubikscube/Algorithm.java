@@ -0,0 +1,161 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A move sequence compiled into the single cube state it produces, so applying it
+ * costs one permutation multiply instead of one per move.
+ *
+ * compile() reads both the TwoPhase.solve format (a face letter per quarter turn:
+ * "UUU" is U') and standard notation ("U R2 F'"), with or without spaces.
+ * Consecutive turns of a face are merged into one move (dropped if they cancel
+ * out). Compiled sequences are cached by their string, so replaying the same
+ * algorithm or solution on many cubes compiles it once.
+ *
+ * usage:
+ *   Algorithm algorithm = Algorithm.compile("R U R' U'");
+ *   algorithm.applyTo(cube);                 // cube.multiply, whatever the length
+ *   boolean ok = Algorithm.compile(solution).solves(scrambled);
+ */
+public final class Algorithm {
+
+    private static final String FACES = "URFDLB";
+    private static final int CACHE_SIZE = 1024;
+
+    // Least recently used compiled sequences by string, like SolutionCache
+    private static final Map<String, Algorithm> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Algorithm> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final int[] moves;
+    private final Cubie effect;        // The sequence applied to a solved cube
+    private final PackedCube packed;
+
+    private Algorithm(int[] moves) {
+        this.moves = moves;
+        effect = new Cubie();
+        for (int move : moves) effect.applyMove(move);
+        packed = new PackedCube(effect);
+    }
+
+    /**
+     * Compile a move string, or return the cached result of compiling it before.
+     *
+     * @throws IllegalArgumentException if the string isn't a move sequence
+     */
+    public static Algorithm compile(String notation) {
+        synchronized (CACHE) {
+            Algorithm cached = CACHE.get(notation);
+            if (cached != null) return cached;
+        }
+        Algorithm algorithm = new Algorithm(parse(notation));
+        synchronized (CACHE) {
+            CACHE.put(notation, algorithm);
+        }
+        return algorithm;
+    }
+
+    /** Compile a sequence of move indices 0-17 (as Cubie.applyMove). Not cached. */
+    public static Algorithm of(int... moves) {
+        for (int move : moves) {
+            if (move < 0 || move >= Tables.N_MOVES) throw new IllegalArgumentException("Invalid move: " + move);
+        }
+        return new Algorithm(moves.clone());
+    }
+
+    /** The moves as indices 0-17; from compile(), with consecutive turns of a face merged. */
+    public int[] moves() {
+        return moves.clone();
+    }
+
+    /** Number of moves (a half turn counts as one). */
+    public int length() {
+        return moves.length;
+    }
+
+    /** Apply the whole sequence to a cube: one multiply, whatever its length. */
+    public void applyTo(Cubie cube) {
+        cube.multiply(effect);
+    }
+
+    /** Apply the whole sequence to a packed cube, without allocating. */
+    public void applyTo(PackedCube cube) {
+        cube.multiply(packed);
+    }
+
+    /**
+     * Whether applying the sequence solves a regular (not mirrored) cube. The cube
+     * isn't modified, and nothing is allocated.
+     */
+    public boolean solves(Cubie cube) {
+        // Position i ends up with the piece (and twist) that was at effect.cornerPerm[i]
+        for (int i = 0; i < 8; i++) {
+            int from = effect.cornerPerm[i];
+            if (cube.cornerPerm[from] != i || (cube.cornerOrient[from] + effect.cornerOrient[i]) % 3 != 0) return false;
+        }
+        for (int i = 0; i < 12; i++) {
+            int from = effect.edgePerm[i];
+            if (cube.edgePerm[from] != i || (cube.edgeOrient[from] + effect.edgeOrient[i]) % 2 != 0) return false;
+        }
+        return true;
+    }
+
+    /** The state the sequence produces from a solved cube, as a new Cubie. */
+    public Cubie toCubie() {
+        return new Cubie(effect);
+    }
+
+    /** The moves in standard notation, separated by spaces. */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (int move : moves) {
+            if (!out.isEmpty()) out.append(' ');
+            out.append(FACES.charAt(move / 3)).append(switch (move % 3) {
+                case 1 -> "2";
+                case 2 -> "'";
+                default -> "";
+            });
+        }
+        return out.toString();
+    }
+
+    /**
+     * Parse either notation into move indices. A turn of the same face as the last
+     * move is merged into it, and a move that cancels out is dropped.
+     */
+    private static int[] parse(String notation) {
+        int[] moves = new int[notation.length()];
+        int count = 0;
+
+        for (int i = 0; i < notation.length(); i++) {
+            char c = notation.charAt(i);
+            if (Character.isWhitespace(c)) continue;
+
+            int face = FACES.indexOf(c);
+            if (face < 0) throw new IllegalArgumentException("Invalid move at index " + i + " of \"" + notation + "\"");
+            int turns = 1;
+            if (i + 1 < notation.length() && notation.charAt(i + 1) == '2') {
+                turns = 2;
+                i++;
+            } else if (i + 1 < notation.length() && notation.charAt(i + 1) == '\'') {
+                turns = 3;
+                i++;
+            }
+
+            if (count > 0 && moves[count - 1] / 3 == face) {
+                turns = (moves[count - 1] % 3 + 1 + turns) % 4;
+                if (turns == 0) count--;
+                else moves[count - 1] = 3 * face + turns - 1;
+            } else {
+                moves[count++] = 3 * face + turns - 1;
+            }
+        }
+        return Arrays.copyOf(moves, count);
+    }
+}
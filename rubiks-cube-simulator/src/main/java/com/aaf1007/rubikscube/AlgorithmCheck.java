@@ -0,0 +1,106 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks Algorithm parsing: random move sequences written in the TwoPhase.solve
+ * format ("UUU") and in standard notation ("U'", with and without spaces) must
+ * compile to the moves they describe, merged per face, and have the same effect
+ * as applying the moves one by one.
+ *
+ * usage: java com.aaf1007.rubikscube.AlgorithmCheck [random sequences]
+ */
+public class AlgorithmCheck {
+
+    private static final String FACES = "URFDLB";
+    private static final String[] SUFFIXES = {"", "2", "'"};
+
+    public static void main(String[] args) {
+        int sequences = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+
+        check(Arrays.equals(Algorithm.compile("UUU").moves(), new int[] {2}), "UUU isn't U'");
+        check(Arrays.equals(Algorithm.compile("R U2 F'").moves(), new int[] {3, 1, 8}), "R U2 F' misparsed");
+        check(Arrays.equals(Algorithm.compile("RU2F'").moves(), new int[] {3, 1, 8}), "RU2F' misparsed");
+        check(Arrays.equals(Algorithm.compile("R R'").moves(), new int[0]), "R R' doesn't cancel");
+        check(Arrays.equals(Algorithm.compile("U U2 F").moves(), new int[] {2, 6}), "U U2 isn't merged into U'");
+        check(Algorithm.compile("").length() == 0, "empty sequence has moves");
+        check(Algorithm.compile("R U R' U'").toString().equals("R U R' U'"), "toString differs from the input");
+        for (String invalid : new String[] {"U X", "R3", "2U", "u"}) {
+            try {
+                Algorithm.compile(invalid);
+                throw new IllegalStateException("\"" + invalid + "\" accepted");
+            } catch (IllegalArgumentException expected) {
+                // Rejected as it should be
+            }
+        }
+
+        Random random = new Random(5);
+        for (int i = 0; i < sequences; i++) {
+            int[] moves = new int[random.nextInt(30)];
+            StringBuilder solveFormat = new StringBuilder();
+            StringBuilder spaced = new StringBuilder();
+            StringBuilder compact = new StringBuilder();
+            for (int k = 0; k < moves.length; k++) {
+                int move = moves[k] = random.nextInt(Tables.N_MOVES);
+                char face = FACES.charAt(move / 3);
+                solveFormat.append(String.valueOf(face).repeat(move % 3 + 1));
+                if (k > 0) spaced.append(' ');
+                spaced.append(face).append(SUFFIXES[move % 3]);
+                compact.append(face).append(SUFFIXES[move % 3]);
+            }
+
+            Cubie start = new Cubie();
+            for (int m = 0; m < 10; m++) start.applyMove(random.nextInt(Tables.N_MOVES));
+            Cubie expected = new Cubie(start);
+            for (int move : moves) expected.applyMove(move);
+            int[] merged = merge(moves);
+
+            for (String notation : new String[] {solveFormat.toString(), spaced.toString(), compact.toString()}) {
+                Algorithm algorithm = Algorithm.compile(notation);
+                check(Arrays.equals(algorithm.moves(), merged), "\"" + notation + "\" parsed as " + algorithm);
+
+                Cubie cube = new Cubie(start);
+                algorithm.applyTo(cube);
+                check(same(cube, expected), "\"" + notation + "\" applied differs from its moves");
+                PackedCube packed = new PackedCube(start);
+                algorithm.applyTo(packed);
+                check(packed.equals(new PackedCube(expected)), "\"" + notation + "\" applied to a packed cube differs");
+
+                check(Arrays.equals(Algorithm.compile(algorithm.toString()).moves(), merged),
+                    "\"" + algorithm + "\" doesn't parse back to the same moves");
+                check(algorithm.solves(algorithm.toCubie().inverse()), "solves() rejects the inverse of \"" + notation + "\"");
+                check(algorithm.solves(new Cubie()) == algorithm.toCubie().isSolved(),
+                    "solves() is wrong for the solved cube and \"" + notation + "\"");
+            }
+        }
+        System.out.println("Algorithm: all checks passed");
+    }
+
+    /** Merge consecutive turns of one face the way Algorithm.compile does, dropping those that cancel. */
+    private static int[] merge(int[] moves) {
+        int[] merged = new int[moves.length];
+        int count = 0;
+        for (int move : moves) {
+            if (count > 0 && merged[count - 1] / 3 == move / 3) {
+                int turns = (merged[count - 1] % 3 + move % 3 + 2) % 4;
+                if (turns == 0) count--;
+                else merged[count - 1] = 3 * (move / 3) + turns - 1;
+            } else {
+                merged[count++] = move;
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+
+    private static boolean same(Cubie a, Cubie b) {
+        return Arrays.equals(a.cornerPerm, b.cornerPerm)
+            && Arrays.equals(a.cornerOrient, b.cornerOrient)
+            && Arrays.equals(a.edgePerm, b.edgePerm)
+            && Arrays.equals(a.edgeOrient, b.edgeOrient);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
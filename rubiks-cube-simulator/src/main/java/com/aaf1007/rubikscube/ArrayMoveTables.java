@@ -0,0 +1,48 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Move table backend that reads the jagged short[N][18] arrays in Tables directly.
+ * This is the original storage layout and the default backend.
+ */
+final class ArrayMoveTables implements MoveTableBackend {
+
+    @Override
+    public int twist(int twist, int move) {
+        return Tables.twistMove[twist][move];
+    }
+
+    @Override
+    public int flip(int flip, int move) {
+        return Tables.flipMove[flip][move];
+    }
+
+    @Override
+    public int slice(int slice, int move) {
+        return Tables.sliceMove[slice][move];
+    }
+
+    @Override
+    public int cornerPerm(int cornerPerm, int move) {
+        return Tables.cornerPermMove[cornerPerm][move];
+    }
+
+    @Override
+    public int udEdgePerm(int udEdgePerm, int move) {
+        return Tables.udEdgePermMove[udEdgePerm][move];
+    }
+
+    @Override
+    public int urToUl(int urToUl, int move) {
+        return Tables.urToUlMove[urToUl][move];
+    }
+
+    @Override
+    public int ubToDf(int ubToDf, int move) {
+        return Tables.ubToDfMove[ubToDf][move];
+    }
+
+    @Override
+    public int merge(int urToUl, int ubToDf) {
+        return Tables.mergeURtoULandUBtoDF[urToUl][ubToDf];
+    }
+}
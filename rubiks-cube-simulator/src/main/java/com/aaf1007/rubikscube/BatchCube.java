@@ -0,0 +1,189 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Many cubes stored column-wise, for applying the same moves to all of them at once
+ * (scramble generation, verifying one solution against many states, measuring
+ * heuristics over large samples).
+ *
+ * Every corner and edge position has one row per array, holding a lane per cube:
+ * cornerPerm[position][cube], cornerOrient[position][cube] and so on. A move sends
+ * the same position to the same place in every cube, so it doesn't touch the
+ * pieces at all: the rows are reordered by reference, and only the orientation
+ * rows of the positions the move twists or flips are updated, lane by lane. Those
+ * updates use the Vector API when the JVM runs with --add-modules
+ * jdk.incubator.vector, otherwise plain loops (-Drubikscube.batchVector=false
+ * forces the loops).
+ *
+ * Only regular cubes are supported (no mirrored orientations, see Symmetry).
+ * A BatchCube is not thread-safe.
+ *
+ * usage:
+ *   BatchCube batch = new BatchCube(cubes.length);
+ *   for (int i = 0; i < cubes.length; i++) batch.set(i, cubes[i]);
+ *   batch.applyMoves(moves);
+ *   boolean solved = batch.isSolved(0);
+ */
+public final class BatchCube {
+
+    /** Whether orientation updates use the Vector API by default. */
+    static final boolean VECTOR = Boolean.parseBoolean(System.getProperty("rubikscube.batchVector", "true"))
+        && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    // Per move: position i receives the piece from position PERM[move][i], and
+    // its orientation changes by ORIENT[move][i] (the move applied to a solved cube)
+    private static final int[][] CORNER_PERM = new int[Tables.N_MOVES][];
+    private static final byte[][] CORNER_ORIENT = new byte[Tables.N_MOVES][];
+    private static final int[][] EDGE_PERM = new int[Tables.N_MOVES][];
+    private static final byte[][] EDGE_ORIENT = new byte[Tables.N_MOVES][];
+
+    static {
+        for (int m = 0; m < Tables.N_MOVES; m++) {
+            Cubie cube = new Cubie();
+            cube.applyMove(m);
+            CORNER_PERM[m] = cube.cornerPerm;
+            CORNER_ORIENT[m] = cube.cornerOrient;
+            EDGE_PERM[m] = cube.edgePerm;
+            EDGE_ORIENT[m] = cube.edgeOrient;
+        }
+    }
+
+    private final int size;
+    private final boolean vector;
+
+    private byte[][] cornerPerm = new byte[8][];
+    private byte[][] cornerOrient = new byte[8][];
+    private byte[][] edgePerm = new byte[12][];
+    private byte[][] edgeOrient = new byte[12][];
+
+    // Row arrays swapped with the above on every move
+    private byte[][] cornerPermNext = new byte[8][];
+    private byte[][] cornerOrientNext = new byte[8][];
+    private byte[][] edgePermNext = new byte[12][];
+    private byte[][] edgeOrientNext = new byte[12][];
+
+    /** Batch of 'size' solved cubes. */
+    public BatchCube(int size) {
+        this(size, VECTOR);
+    }
+
+    /** Batch of 'size' solved cubes, forcing the vector or the scalar orientation updates. */
+    BatchCube(int size, boolean vector) {
+        if (size < 0) throw new IllegalArgumentException("size must not be negative: " + size);
+        this.size = size;
+        this.vector = vector;
+        for (int i = 0; i < 8; i++) {
+            cornerPerm[i] = new byte[size];
+            cornerOrient[i] = new byte[size];
+            Arrays.fill(cornerPerm[i], (byte) i);
+        }
+        for (int i = 0; i < 12; i++) {
+            edgePerm[i] = new byte[size];
+            edgeOrient[i] = new byte[size];
+            Arrays.fill(edgePerm[i], (byte) i);
+        }
+    }
+
+    /** Number of cubes in the batch. */
+    public int size() {
+        return size;
+    }
+
+    /** Set cube 'index' to the state of a regular (not mirrored) Cubie. */
+    public void set(int index, Cubie cube) {
+        for (int i = 0; i < 8; i++) {
+            cornerPerm[i][index] = (byte) cube.cornerPerm[i];
+            cornerOrient[i][index] = cube.cornerOrient[i];
+        }
+        for (int i = 0; i < 12; i++) {
+            edgePerm[i][index] = (byte) cube.edgePerm[i];
+            edgeOrient[i][index] = cube.edgeOrient[i];
+        }
+    }
+
+    /** Cube 'index' as a new Cubie. */
+    public Cubie get(int index) {
+        Cubie cube = new Cubie();
+        for (int i = 0; i < 8; i++) {
+            cube.cornerPerm[i] = cornerPerm[i][index];
+            cube.cornerOrient[i] = cornerOrient[i][index];
+        }
+        for (int i = 0; i < 12; i++) {
+            cube.edgePerm[i] = edgePerm[i][index];
+            cube.edgeOrient[i] = edgeOrient[i][index];
+        }
+        return cube;
+    }
+
+    public boolean isSolved(int index) {
+        for (int i = 0; i < 8; i++) {
+            if (cornerPerm[i][index] != i || cornerOrient[i][index] != 0) return false;
+        }
+        for (int i = 0; i < 12; i++) {
+            if (edgePerm[i][index] != i || edgeOrient[i][index] != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Apply a move to every cube of the batch.
+     *
+     * @param move Move index 0-17, as Cubie.applyMove
+     */
+    public void applyMove(int move) {
+        int[] corners = CORNER_PERM[move];
+        for (int i = 0; i < 8; i++) {
+            cornerPermNext[i] = cornerPerm[corners[i]];
+            cornerOrientNext[i] = cornerOrient[corners[i]];
+        }
+        int[] edges = EDGE_PERM[move];
+        for (int i = 0; i < 12; i++) {
+            edgePermNext[i] = edgePerm[edges[i]];
+            edgeOrientNext[i] = edgeOrient[edges[i]];
+        }
+        byte[][] swap = cornerPerm;
+        cornerPerm = cornerPermNext;
+        cornerPermNext = swap;
+        swap = cornerOrient;
+        cornerOrient = cornerOrientNext;
+        cornerOrientNext = swap;
+        swap = edgePerm;
+        edgePerm = edgePermNext;
+        edgePermNext = swap;
+        swap = edgeOrient;
+        edgeOrient = edgeOrientNext;
+        edgeOrientNext = swap;
+
+        byte[] twists = CORNER_ORIENT[move];
+        for (int i = 0; i < 8; i++) {
+            if (twists[i] == 0) continue;
+            if (vector) BatchVectorOps.twist(cornerOrient[i], twists[i], size);
+            else twist(cornerOrient[i], twists[i], size, 0);
+        }
+        byte[] flips = EDGE_ORIENT[move];
+        for (int i = 0; i < 12; i++) {
+            if (flips[i] == 0) continue;
+            if (vector) BatchVectorOps.flip(edgeOrient[i], size);
+            else flip(edgeOrient[i], size, 0);
+        }
+    }
+
+    /** Apply a sequence of moves (indices 0-17) to every cube of the batch. */
+    public void applyMoves(int[] moves) {
+        for (int move : moves) applyMove(move);
+    }
+
+    /** Add 'amount' (1 or 2) modulo 3 to the corner orientations of a row, from 'start' up to 'size'. */
+    static void twist(byte[] row, int amount, int size, int start) {
+        for (int i = start; i < size; i++) {
+            int orient = row[i] + amount;
+            row[i] = (byte) (orient >= 3 ? orient - 3 : orient);
+        }
+    }
+
+    /** Flip the edge orientations of a row, from 'start' up to 'size'. */
+    static void flip(byte[] row, int size, int start) {
+        for (int i = start; i < size; i++) row[i] ^= 1;
+    }
+}
@@ -0,0 +1,76 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Benchmark of applying one move sequence to many cubes: Cubie.applyMove in a
+ * loop over the cubes against BatchCube with scalar and (if the JVM runs with
+ * --add-modules jdk.incubator.vector) Vector API orientation updates.
+ *
+ * All variants start from the same random cubes and must end in the same states,
+ * which is checked before printing the timings.
+ *
+ * usage: java [--add-modules jdk.incubator.vector] com.aaf1007.rubikscube.BatchMoveBenchmark [cubes] [moves]
+ */
+public class BatchMoveBenchmark {
+
+    public static void main(String[] args) {
+        int cubes = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int length = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+
+        Random random = new Random(42);
+        Cubie[] start = new Cubie[cubes];
+        for (int i = 0; i < cubes; i++) {
+            start[i] = new Cubie();
+            for (int m = 0; m < 20; m++) start[i].applyMove(random.nextInt(Tables.N_MOVES));
+        }
+        int[] moves = new int[length];
+        for (int i = 0; i < length; i++) moves[i] = random.nextInt(Tables.N_MOVES);
+
+        System.out.printf("%,d cubes, %d moves, vector API %s%n", cubes, length,
+            BatchCube.VECTOR ? "available (" + BatchVectorOps.class.getSimpleName() + ")" : "not available");
+
+        Cubie[] expected = null;
+        for (int round = 0; round < 5; round++) {
+            // Cubie, one cube at a time
+            Cubie[] single = new Cubie[cubes];
+            for (int i = 0; i < cubes; i++) single[i] = new Cubie(start[i]);
+            long time = System.nanoTime();
+            for (Cubie cube : single) {
+                for (int move : moves) cube.applyMove(move);
+            }
+            report(round, "Cubie", System.nanoTime() - time, cubes, length);
+            expected = single;
+
+            run(round, "batch scalar", new BatchCube(cubes, false), start, moves, expected);
+            if (BatchCube.VECTOR) run(round, "batch vector", new BatchCube(cubes, true), start, moves, expected);
+        }
+    }
+
+    private static void run(int round, String name, BatchCube batch, Cubie[] start, int[] moves, Cubie[] expected) {
+        for (int i = 0; i < start.length; i++) batch.set(i, start[i]);
+        long time = System.nanoTime();
+        batch.applyMoves(moves);
+        report(round, name, System.nanoTime() - time, start.length, moves.length);
+
+        for (int i = 0; i < start.length; i++) {
+            if (!sameState(batch.get(i), expected[i])) {
+                throw new IllegalStateException(name + " differs from Cubie.applyMove at cube " + i);
+            }
+        }
+    }
+
+    private static void report(int round, String name, long nanos, int cubes, int length) {
+        // The first rounds include JIT compilation
+        System.out.printf("round %d  %-12s %8.2f ms   %6.2f ns/cube/move%n",
+            round, name, nanos / 1e6, (double) nanos / ((long) cubes * length));
+    }
+
+    private static boolean sameState(Cubie a, Cubie b) {
+        return Arrays.equals(a.cornerPerm, b.cornerPerm)
+            && Arrays.equals(a.cornerOrient, b.cornerOrient)
+            && Arrays.equals(a.edgePerm, b.edgePerm)
+            && Arrays.equals(a.edgeOrient, b.edgeOrient);
+    }
+}
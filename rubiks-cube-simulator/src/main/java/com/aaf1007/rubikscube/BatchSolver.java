@@ -0,0 +1,139 @@
+package com.aaf1007.rubikscube;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Solves batches of cubes on a pool of worker threads.
+ *
+ * The batch is split recursively on a ForkJoinPool, so idle workers steal the
+ * remaining halves from busy ones and a few slow cubes don't leave cores idle.
+ * Every worker thread searches with its own SolveContext while the Tables are
+ * shared read-only, so throughput scales with the number of cores.
+ *
+ * Results are returned in input order, one per cube, each holding either the
+ * solution or the "Error N" code TwoPhase.solve would have returned.
+ *
+ * usage:
+ *   try (BatchSolver solver = new BatchSolver(8)) {
+ *       List<BatchSolver.Result> results = solver.solve(cubes, 25, 10);
+ *   }
+ */
+public final class BatchSolver implements AutoCloseable {
+
+    /**
+     * Outcome of solving one cube of a batch.
+     *
+     * @param solution Solution string in TwoPhase.solve format, or null if solving failed
+     * @param error    The N of "Error N" if solving failed, 0 if solved
+     */
+    public record Result(String solution, int error) {
+
+        /** Wrap the return value of TwoPhase.solve. */
+        static Result of(String output) {
+            if (output.startsWith("Error ")) {
+                return new Result(null, Integer.parseInt(output.substring(6)));
+            }
+            return new Result(output, 0);
+        }
+
+        public boolean solved() {
+            return error == 0;
+        }
+
+        /** The same string TwoPhase.solve returns: the solution or "Error N". */
+        @Override
+        public String toString() {
+            return solved() ? solution : "Error " + error;
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    /** Batch solver with one worker per available processor. */
+    public BatchSolver() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Batch solver with the given number of worker threads. */
+    public BatchSolver(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Solve every cube of a collection.
+     *
+     * @param cubes    Cubes to solve; they are not modified
+     * @param maxDepth Max total solution length to search for
+     * @param timeOut  Timeout per cube, in the unit TwoPhase.solve uses
+     * @return one result per cube, in iteration order of the collection
+     */
+    public List<Result> solve(Collection<Cubie> cubes, int maxDepth, long timeOut) {
+        return solve(cubes.toArray(new Cubie[0]), maxDepth, timeOut);
+    }
+
+    /**
+     * Solve every cube of a stream. The stream is consumed before solving starts.
+     *
+     * @return one result per cube, in encounter order of the stream
+     */
+    public List<Result> solve(Stream<Cubie> cubes, int maxDepth, long timeOut) {
+        return solve(cubes.toArray(Cubie[]::new), maxDepth, timeOut);
+    }
+
+    private List<Result> solve(Cubie[] cubes, int maxDepth, long timeOut) {
+        // Load the tables once up front rather than having every worker wait for them
+        Tables.await(Tables.Group.PHASE2);
+
+        Result[] results = new Result[cubes.length];
+        pool.invoke(new SolveRange(cubes, results, 0, cubes.length, maxDepth, timeOut));
+        return new ArrayList<>(Arrays.asList(results));
+    }
+
+    /** Shut down the worker threads. Batches already running are completed. */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /**
+     * Solves cubes [from, to), splitting the range in halves down to single cubes.
+     * A solve takes milliseconds, so splitting that far costs nothing noticeable
+     * and gives work stealing the most freedom.
+     */
+    @SuppressWarnings("serial")  // Fork-join tasks are never serialized
+    private static final class SolveRange extends RecursiveAction {
+        private final Cubie[] cubes;
+        private final Result[] results;
+        private final int from, to, maxDepth;
+        private final long timeOut;
+
+        SolveRange(Cubie[] cubes, Result[] results, int from, int to, int maxDepth, long timeOut) {
+            this.cubes = cubes;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+            this.maxDepth = maxDepth;
+            this.timeOut = timeOut;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SolveRange(cubes, results, from, mid, maxDepth, timeOut),
+                          new SolveRange(cubes, results, mid, to, maxDepth, timeOut));
+                return;
+            }
+            if (from < to) {
+                results[from] = Result.of(TwoPhase.solve(cubes[from], maxDepth, timeOut));
+            }
+        }
+    }
+}
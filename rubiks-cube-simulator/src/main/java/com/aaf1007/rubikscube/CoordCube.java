@@ -0,0 +1,182 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Cube state as the coordinates of the move tables, moved by table lookups only.
+ *
+ * For random walks, reachability checks and verifying solutions none of the piece
+ * arrays of Cubie are needed: a move is seven lookups in Tables.moves. The
+ * coordinates held are the ones the search uses:
+ * - twist, flip: corner and edge orientations
+ * - slice: positions and order of the E-slice edges (0-11879, 0 when solved)
+ * - cornerPerm, parity: positions and order of corners 0-5, and the permutation parity
+ * - urToUl, ubToDf: positions and order of edges 0-2 and 3-5
+ *
+ * Together they describe the whole cube (the last two corners and edges follow from
+ * the parity), so isSolved() is exact and toCubie() restores the pieces. The UD
+ * edge permutation coordinate of phase 2 only exists while the UD edges are in the
+ * U and D layers; udEdgePerm() merges it from the two helper coordinates there.
+ *
+ * Creating a CoordCube loads the move tables (Tables.await), if they aren't yet.
+ *
+ * usage:
+ *   CoordCube coords = new CoordCube(cubie);
+ *   for (int move : moves) coords.applyMove(move);
+ *   boolean solved = coords.isSolved();
+ */
+public final class CoordCube {
+
+    // Coordinates of the solved cube
+    private static final int SOLVED_UR_TO_UL;
+    private static final int SOLVED_UB_TO_DF;
+
+    static {
+        Cubie solved = new Cubie();
+        SOLVED_UR_TO_UL = solved.getURtoUL();
+        SOLVED_UB_TO_DF = solved.getUBtoDF();
+    }
+
+    private int twist, flip, slice;
+    private int cornerPerm, parity;
+    private int urToUl, ubToDf;
+
+    /** Solved cube. */
+    public CoordCube() {
+        Tables.await(Tables.Group.PHASE2);
+        urToUl = SOLVED_UR_TO_UL;
+        ubToDf = SOLVED_UB_TO_DF;
+    }
+
+    /** Copy of another coordinate cube. */
+    public CoordCube(CoordCube other) {
+        twist = other.twist;
+        flip = other.flip;
+        slice = other.slice;
+        cornerPerm = other.cornerPerm;
+        parity = other.parity;
+        urToUl = other.urToUl;
+        ubToDf = other.ubToDf;
+    }
+
+    /** Coordinates of a regular (not mirrored) Cubie. */
+    public CoordCube(Cubie cube) {
+        Tables.await(Tables.Group.PHASE2);
+        set(cube);
+    }
+
+    /** Set the coordinates to those of a regular (not mirrored) Cubie. */
+    public void set(Cubie cube) {
+        twist = cube.getTwist();
+        flip = cube.getFlip();
+        slice = cube.getSlice();
+        cornerPerm = cube.getCornerPerm();
+        parity = cube.cornerParity();
+        urToUl = cube.getURtoUL();
+        ubToDf = cube.getUBtoDF();
+    }
+
+    /**
+     * Apply a move in place.
+     *
+     * @param move Move index 0-17, as Cubie.applyMove
+     */
+    public void applyMove(int move) {
+        MoveTableBackend moves = Tables.moves;
+        twist = moves.twist(twist, move);
+        flip = moves.flip(flip, move);
+        slice = moves.slice(slice, move);
+        cornerPerm = moves.cornerPerm(cornerPerm, move);
+        parity = Tables.parityMove[parity][move];
+        urToUl = moves.urToUl(urToUl, move);
+        ubToDf = moves.ubToDf(ubToDf, move);
+    }
+
+    public boolean isSolved() {
+        return twist == 0 && flip == 0 && slice == 0 && cornerPerm == 0 && parity == 0
+            && urToUl == SOLVED_UR_TO_UL && ubToDf == SOLVED_UB_TO_DF;
+    }
+
+    /** Whether the cube is in G1, where phase 2 starts: no twists or flips, E-slice edges in the E-slice. */
+    public boolean inG1() {
+        return twist == 0 && flip == 0 && slice < Tables.N_SLICE2;
+    }
+
+    public int twist() {
+        return twist;
+    }
+
+    public int flip() {
+        return flip;
+    }
+
+    /** Positions and order of the E-slice edges, 0-11879 (slice / 24 is the phase 1 slice coordinate). */
+    public int slice() {
+        return slice;
+    }
+
+    public int cornerPerm() {
+        return cornerPerm;
+    }
+
+    /** Corner (and edge) permutation parity: 0 even, 1 odd. */
+    public int parity() {
+        return parity;
+    }
+
+    /** Phase 2 UD edge permutation, 0-20159, or -1 while a UD edge is in the E-slice. */
+    public int udEdgePerm() {
+        return urToUl < 336 && ubToDf < 336 ? Tables.moves.merge(urToUl, ubToDf) : -1;
+    }
+
+    /** The state as a new Cubie. */
+    public Cubie toCubie() {
+        Cubie cube = new Cubie();
+        cube.setTwist((short) twist);
+        cube.setFlip((short) flip);
+
+        // setCornerPerm puts corners 6 and 7 in order; the parity says if they're swapped
+        cube.setCornerPerm((short) cornerPerm);
+        if (cube.cornerParity() != parity) swap(cube.cornerPerm, 6, 7);
+
+        // Edges 0-5 and 8-11 from their coordinates, 6 and 7 in order in the rest
+        int[] edges = new int[12];
+        Cubie part = new Cubie();
+        part.setSlice((short) slice);
+        for (int i = 0; i < 12; i++) edges[i] = part.edgePerm[i] >= 8 ? part.edgePerm[i] : -1;
+        part.setURtoUL((short) urToUl);
+        for (int i = 0; i < 12; i++) if (part.edgePerm[i] <= 2) edges[i] = part.edgePerm[i];
+        part.setUBtoDF((short) ubToDf);
+        for (int i = 0; i < 12; i++) if (part.edgePerm[i] >= 3 && part.edgePerm[i] <= 5) edges[i] = part.edgePerm[i];
+        int next = 6;
+        for (int i = 0; i < 12; i++) if (edges[i] == -1) edges[i] = next++;
+        cube.edgePerm = edges;
+        if (cube.edgeParity() != parity) swap(edges, 6, 7);
+
+        return cube;
+    }
+
+    /** Swap the positions of two pieces in a permutation. */
+    private static void swap(int[] perm, int pieceA, int pieceB) {
+        for (int i = 0; i < perm.length; i++) {
+            if (perm[i] == pieceA) perm[i] = pieceB;
+            else if (perm[i] == pieceB) perm[i] = pieceA;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CoordCube other && twist == other.twist && flip == other.flip && slice == other.slice
+            && cornerPerm == other.cornerPerm && parity == other.parity
+            && urToUl == other.urToUl && ubToDf == other.ubToDf;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = twist;
+        hash = 31 * hash + flip;
+        hash = 31 * hash + slice;
+        hash = 31 * hash + cornerPerm;
+        hash = 31 * hash + parity;
+        hash = 31 * hash + urToUl;
+        return 31 * hash + ubToDf;
+    }
+}
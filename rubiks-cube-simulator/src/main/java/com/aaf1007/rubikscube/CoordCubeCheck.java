@@ -0,0 +1,68 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks CoordCube against Cubie: random move sequences applied to both must
+ * give the same coordinates, toCubie must restore the pieces, isSolved must
+ * agree, undoing the moves must solve the cube, and in G1 the merged UD edge
+ * permutation must match Cubie's.
+ *
+ * usage: java com.aaf1007.rubikscube.CoordCubeCheck [random cubes]
+ */
+public class CoordCubeCheck {
+
+    // Moves of phase 2, which keep a cube in G1: U, U2, U', R2, F2, D, D2, D', L2, B2
+    private static final int[] PHASE2_MOVES = {0, 1, 2, 4, 7, 9, 10, 11, 13, 16};
+
+    public static void main(String[] args) {
+        int cubes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        check(new CoordCube().isSolved() && new CoordCube(new Cubie()).isSolved(), "solved cube isn't solved");
+        check(new CoordCube().equals(new CoordCube(new Cubie())), "solved cubes differ");
+
+        Random random = new Random(9);
+        for (int i = 0; i < cubes; i++) {
+            boolean phase2 = i % 2 == 0;
+            int[] moves = new int[30];
+            Cubie cube = new Cubie();
+            for (int m = 0; m < 20; m++) {
+                moves[m] = phase2 ? PHASE2_MOVES[random.nextInt(PHASE2_MOVES.length)] : random.nextInt(Tables.N_MOVES);
+                cube.applyMove(moves[m]);
+            }
+
+            CoordCube coords = new CoordCube(cube);
+            check(same(coords.toCubie(), cube), "toCubie doesn't restore the pieces");
+            if (phase2) {
+                check(coords.inG1(), "cube moved by phase 2 moves isn't in G1");
+                check(coords.udEdgePerm() == cube.getUDEdgePerm(), "UD edge permutation differs from Cubie");
+            }
+
+            for (int m = 20; m < 30; m++) {
+                moves[m] = random.nextInt(Tables.N_MOVES);
+                cube.applyMove(moves[m]);
+                coords.applyMove(moves[m]);
+            }
+            check(coords.equals(new CoordCube(cube)), "moves differ from Cubie.applyMove");
+            check(same(coords.toCubie(), cube), "toCubie after moves doesn't restore the pieces");
+            check(coords.isSolved() == cube.isSolved(), "isSolved differs from Cubie");
+
+            // Undoing the moves in reverse order solves the cube
+            for (int m = moves.length - 1; m >= 0; m--) coords.applyMove(3 * (moves[m] / 3) + 2 - moves[m] % 3);
+            check(coords.isSolved(), "undoing the moves doesn't solve the cube");
+        }
+        System.out.println("CoordCube: all checks passed");
+    }
+
+    private static boolean same(Cubie a, Cubie b) {
+        return Arrays.equals(a.cornerPerm, b.cornerPerm)
+            && Arrays.equals(a.cornerOrient, b.cornerOrient)
+            && Arrays.equals(a.edgePerm, b.edgePerm)
+            && Arrays.equals(a.edgeOrient, b.edgeOrient);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
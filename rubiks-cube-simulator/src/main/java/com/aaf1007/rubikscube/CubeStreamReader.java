@@ -0,0 +1,183 @@
+package com.aaf1007.rubikscube;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads any number of cubes from one file, one after the other, in constant memory.
+ *
+ * A file holds cubes in either of two layouts, freely mixed and separated by any
+ * number of blank lines:
+ * - one line of 54 colors: the stickers in the order of RubiksCube.stickers (faces
+ *   U, R, F, D, L, B, each read row by row), e.g. a solved cube is
+ *   OOOOOOOOOBBBBBBBBBWWWWWWWWWRRRRRRRRRGGGGGGGGGYYYYYYYYY
+ * - the 9-line unfolded layout of the single-cube input files (see RubiksCube)
+ *
+ * The file is read through a FileChannel in fixed-size chunks and decoded byte by
+ * byte into a reused sticker array and the caller's Cubie, so reading a cube
+ * allocates nothing and memory use doesn't depend on the file size.
+ *
+ * usage:
+ *   try (CubeStreamReader reader = new CubeStreamReader(path)) {
+ *       Cubie cube = new Cubie();
+ *       while (reader.next(cube)) solve(cube);
+ *   }
+ */
+public final class CubeStreamReader implements Closeable {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_LINE = 256;
+
+    // Face index of each color character, -1 for any other byte
+    private static final byte[] FACE_OF = new byte[256];
+
+    static {
+        Arrays.fill(FACE_OF, (byte) -1);
+        for (int face = 0; face < 6; face++) FACE_OF[RubiksCube.FACE_CHARS[face]] = (byte) face;
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+    private boolean endOfFile;
+
+    private final byte[] line = new byte[MAX_LINE];
+    private long lineNumber;
+
+    private final RubiksCube facelets = new RubiksCube();
+    private int blockLine = -1;  // Line of the 9-line block being read, -1 between cubes
+
+    public CubeStreamReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.flip();  // Empty until the first read
+    }
+
+    /**
+     * Read the next cube into 'cube', overwriting its pieces.
+     *
+     * @return false if there are no more cubes
+     * @throws IOException if the file can't be read or isn't in either layout; the
+     *                     message gives the line number
+     */
+    public boolean next(Cubie cube) throws IOException {
+        int length;
+        while ((length = readLine()) >= 0) {
+            if (parseLine(length)) {
+                facelets.toCubie(cube);
+                return true;
+            }
+        }
+        if (blockLine >= 0) throw error("cube ends after " + blockLine + " of 9 lines");
+        return false;
+    }
+
+    /** Number of lines read so far; the line a cube ended on after next() returned it. */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Decode a line into the stickers.
+     *
+     * @return true if it completed a cube
+     */
+    private boolean parseLine(int length) throws IOException {
+        if (blockLine < 0) {
+            if (length == 0) return false;  // Blank line between cubes
+            if (length == 54 && line[0] != ' ') {
+                for (int i = 0; i < 54; i++) facelets.stickers[i] = face(i);
+                return true;
+            }
+            blockLine = 0;
+        }
+
+        // Unfolded layout: U in lines 0-2 and D in lines 6-8 at columns 3-5,
+        // L, F, R and B side by side in lines 3-5
+        int row = blockLine % 3;
+        if (blockLine < 3) {
+            parseRow(length, 3, RubiksCube.U, row);
+        } else if (blockLine < 6) {
+            parseRow(length, 0, RubiksCube.L, row);
+            parseRow(length, 3, RubiksCube.F, row);
+            parseRow(length, 6, RubiksCube.R, row);
+            parseRow(length, 9, RubiksCube.B, row);
+        } else {
+            parseRow(length, 3, RubiksCube.D, row);
+        }
+
+        if (++blockLine < 9) return false;
+        blockLine = -1;
+        return true;
+    }
+
+    /** Decode the 3 stickers of one row of a face, starting at column 'start' of the line. */
+    private void parseRow(int length, int start, int face, int row) throws IOException {
+        if (length < start + 3) throw error("line is too short for the 9-line layout");
+        for (int col = 0; col < 3; col++) {
+            facelets.stickers[face * 9 + row * 3 + col] = face(start + col);
+        }
+    }
+
+    private int face(int column) throws IOException {
+        int face = FACE_OF[line[column] & 0xFF];
+        if (face < 0) throw error("invalid color '" + (char) (line[column] & 0xFF) + "' in column " + (column + 1));
+        return face;
+    }
+
+    /**
+     * Read the next line into 'line', without the line terminator and trailing
+     * whitespace.
+     *
+     * @return its length, or -1 at the end of the file
+     */
+    private int readLine() throws IOException {
+        int length = 0;
+        boolean any = false;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (endOfFile || !fill()) {
+                    if (!any) return -1;
+                    break;  // Last line without a terminator
+                }
+            }
+            any = true;
+            byte b = buffer.get();
+            if (b == '\n') break;
+            if (length == MAX_LINE) {
+                lineNumber++;
+                throw error("line is longer than " + MAX_LINE + " characters");
+            }
+            line[length++] = b;
+        }
+        lineNumber++;
+        while (length > 0 && (line[length - 1] == ' ' || line[length - 1] == '\r' || line[length - 1] == '\t')) {
+            length--;
+        }
+        return length;
+    }
+
+    /** Read the next chunk of the file; false at the end. */
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        if (read < 0) endOfFile = true;
+        return read > 0;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Line " + lineNumber + ": " + message);
+    }
+}
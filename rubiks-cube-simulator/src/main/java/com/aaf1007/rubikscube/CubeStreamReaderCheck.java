@@ -0,0 +1,149 @@
+package com.aaf1007.rubikscube;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks CubeStreamReader on files written from random cubes: 54-color lines,
+ * 9-line blocks and both mixed, with and without blank lines between cubes,
+ * with LF and CRLF line ends and without a final newline must read back as the
+ * cubes written, ending on the right lines. Truncated blocks and invalid colors
+ * must be rejected with the line they're on. Runs in a temporary directory.
+ *
+ * usage: java com.aaf1007.rubikscube.CubeStreamReaderCheck [random cubes]
+ */
+public class CubeStreamReaderCheck {
+
+    private enum Layout { LINES, BLOCKS, MIXED }
+
+    public static void main(String[] args) throws IOException {
+        // Enough 54-color lines to span several chunks of the reader
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 3_000;
+
+        Random random = new Random(11);
+        Cubie[] cubes = new Cubie[count];
+        for (int i = 0; i < count; i++) {
+            cubes[i] = new Cubie();
+            for (int m = 0; m < 25; m++) cubes[i].applyMove(random.nextInt(Tables.N_MOVES));
+        }
+
+        Path dir = Files.createTempDirectory("cubestream-check");
+        Path file = dir.resolve("cubes.txt");
+        try {
+            for (Layout layout : Layout.values()) {
+                for (String newline : new String[] {"\n", "\r\n"}) {
+                    for (int blankLines : new int[] {0, 1, 2}) {
+                        for (boolean finalNewline : new boolean[] {true, false}) {
+                            String what = layout + ", " + (newline.length() == 1 ? "LF" : "CRLF") + ", "
+                                + blankLines + " blank lines" + (finalNewline ? "" : ", no final newline");
+                            checkRoundTrip(file, cubes, layout, newline, blankLines, finalNewline, random, what);
+                        }
+                    }
+                }
+            }
+
+            // Blank lines only, or nothing at all, hold no cubes
+            checkEmpty(file, "");
+            checkEmpty(file, "\n\n  \r\n\t\n");
+
+            // A block cut short, at the end of the file or by a blank line
+            String block = RubiksCube.fromCubie(cubes[0]).toString();
+            String firstLines = String.join("\n", Arrays.copyOf(block.split("\n"), 4)) + "\n";
+            checkRejected(file, firstLines, "Line 4: cube ends after 4 of 9 lines");
+            checkRejected(file, firstLines.stripTrailing(), "Line 4: cube ends after 4 of 9 lines");
+            checkRejected(file, line(cubes[0]) + "\n" + firstLines, "Line 5: cube ends after 4 of 9 lines");
+            checkRejected(file, firstLines + "\n" + block, "Line 5: line is too short for the 9-line layout");
+
+            // Invalid colors and lines that are neither layout
+            String invalid = "X" + line(cubes[0]).substring(1);
+            checkRejected(file, line(cubes[0]) + "\n\n" + invalid + "\n", "Line 3: invalid color 'X' in column 1");
+            // A line of 53 colors starts a 9-line block, as its U row
+            checkRejected(file, line(cubes[0]).substring(0, 53) + "\n", "Line 1: cube ends after 1 of 9 lines");
+            checkRejected(file, "OO\n", "Line 1: line is too short for the 9-line layout");
+            checkRejected(file, "O".repeat(300) + "\n", "Line 1: line is longer than 256 characters");
+        } finally {
+            Files.deleteIfExists(file);
+            Files.delete(dir);
+        }
+        System.out.println("CubeStreamReader: all checks passed");
+    }
+
+    /** Write the cubes in a layout and check that they read back, each ending on its own last line. */
+    private static void checkRoundTrip(Path file, Cubie[] cubes, Layout layout, String newline, int blankLines,
+                                       boolean finalNewline, Random random, String what) throws IOException {
+        StringBuilder text = new StringBuilder();
+        long[] endLines = new long[cubes.length];
+        long lines = 0;
+        for (int i = 0; i < cubes.length; i++) {
+            if (i > 0) {
+                text.append(newline.repeat(blankLines));
+                lines += blankLines;
+            }
+            boolean unfolded = layout == Layout.BLOCKS || layout == Layout.MIXED && random.nextBoolean();
+            if (unfolded) {
+                text.append(RubiksCube.fromCubie(cubes[i]).toString().replace("\n", newline));
+                lines += 9;
+            } else {
+                text.append(line(cubes[i])).append(newline);
+                lines++;
+            }
+            endLines[i] = lines;
+        }
+        if (!finalNewline) text.setLength(text.length() - newline.length());
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+
+        try (CubeStreamReader reader = new CubeStreamReader(file)) {
+            Cubie cube = new Cubie();
+            for (int i = 0; i < cubes.length; i++) {
+                check(reader.next(cube), what + ": only " + i + " of " + cubes.length + " cubes read");
+                check(same(cube, cubes[i]), what + ": cube " + i + " differs");
+                check(reader.lineNumber() == endLines[i],
+                    what + ": cube " + i + " ends on line " + reader.lineNumber() + ", expected " + endLines[i]);
+            }
+            check(!reader.next(cube), what + ": cube read after the last one");
+        }
+    }
+
+    private static void checkEmpty(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+        try (CubeStreamReader reader = new CubeStreamReader(file)) {
+            check(!reader.next(new Cubie()), "cube read from " + text.length() + " characters of blank lines");
+        }
+    }
+
+    private static void checkRejected(Path file, String text, String message) throws IOException {
+        Files.writeString(file, text, StandardCharsets.US_ASCII);
+        try (CubeStreamReader reader = new CubeStreamReader(file)) {
+            Cubie cube = new Cubie();
+            while (reader.next(cube)) {
+                // Skip the valid cubes before the error
+            }
+            throw new IllegalStateException("file accepted, expected \"" + message + "\"");
+        } catch (IOException e) {
+            check(message.equals(e.getMessage()), "expected \"" + message + "\", got \"" + e.getMessage() + "\"");
+        }
+    }
+
+    /** The cube as one line of 54 colors, in the order of RubiksCube.stickers. */
+    private static String line(Cubie cube) {
+        int[] stickers = RubiksCube.fromCubie(cube).stickers;
+        char[] colors = new char[54];
+        for (int i = 0; i < 54; i++) colors[i] = RubiksCube.FACE_CHARS[stickers[i]];
+        return new String(colors);
+    }
+
+    private static boolean same(Cubie a, Cubie b) {
+        return Arrays.equals(a.cornerPerm, b.cornerPerm)
+            && Arrays.equals(a.cornerOrient, b.cornerOrient)
+            && Arrays.equals(a.edgePerm, b.edgePerm)
+            && Arrays.equals(a.edgeOrient, b.edgeOrient);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
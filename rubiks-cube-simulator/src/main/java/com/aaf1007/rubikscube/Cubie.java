@@ -74,6 +74,25 @@ public class Cubie {
         {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 1, 1}   // B: flips 4 edges
     };
 
+    // Lookup tables for the permutation coordinates, so ranking and unranking
+    // neither allocate nor recompute: BINOMIAL[n][k] = C(n,k) for n, k in 0-12,
+    // ORDERS_n[rank] = the order of n pieces with that permutation rank (3 bits
+    // per piece), and RANKS_n the other way round
+    private static final int[][] BINOMIAL = new int[13][13];
+    private static final int[] ORDERS_3 = orders(3);
+    private static final int[] ORDERS_4 = orders(4);
+    private static final int[] ORDERS_6 = orders(6);
+    private static final short[] RANKS_3 = ranks(ORDERS_3, 3);
+    private static final short[] RANKS_4 = ranks(ORDERS_4, 4);
+    private static final short[] RANKS_6 = ranks(ORDERS_6, 6);
+
+    static {
+        for (int n = 0; n <= 12; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + BINOMIAL[n - 1][k];
+        }
+    }
+
     // Build move templates from the static arrays
     static {
         for (int m = 0; m < 6; m++) {
@@ -88,6 +107,14 @@ public class Cubie {
     /** Default constructor: creates a solved cube (identity permutation, zero orientation) */
     public Cubie() {}
 
+    /** Copy constructor: creates an independent copy of another cube */
+    public Cubie(Cubie other) {
+        cornerPerm = other.cornerPerm.clone();
+        cornerOrient = other.cornerOrient.clone();
+        edgePerm = other.edgePerm.clone();
+        edgeOrient = other.edgeOrient.clone();
+    }
+
     /**
      * Apply a move to the cube by composing with the move template.
      *
@@ -145,6 +172,68 @@ public class Cubie {
         edgeOrient = newOrient;
     }
 
+    /**
+     * Multiply this cube by another: the result represents applying 'other' after 'this'.
+     *
+     * Unlike applyMove, this also supports mirrored cubes (see Symmetry). A mirrored
+     * cube stores corner orientations as 3-5 instead of 0-2: reflecting a corner
+     * reverses the direction in which its orientation counts. Two mirrors cancel out,
+     * so the product of two mirrored cubes is a regular cube again.
+     */
+    public void multiply(Cubie other) {
+        int[] newCornerPerm = new int[8];
+        byte[] newCornerOrient = new byte[8];
+
+        for (int i = 0; i < 8; i++) {
+            newCornerPerm[i] = cornerPerm[other.cornerPerm[i]];
+
+            int oriA = cornerOrient[other.cornerPerm[i]];
+            int oriB = other.cornerOrient[i];
+            int ori;
+            if (oriA < 3 && oriB < 3) {
+                // Two regular cubes: ordinary sum mod 3
+                ori = (oriA + oriB) % 3;
+            } else if (oriA < 3) {
+                // Only 'other' is mirrored: the result is mirrored
+                ori = oriA + oriB;
+                if (ori >= 6) ori -= 3;
+            } else if (oriB < 3) {
+                // Only 'this' is mirrored: the twist of 'other' counts backwards
+                ori = oriA - oriB;
+                if (ori < 3) ori += 3;
+            } else {
+                // Both mirrored: the result is a regular cube
+                ori = oriA - oriB;
+                if (ori < 0) ori += 3;
+            }
+            newCornerOrient[i] = (byte) ori;
+        }
+
+        cornerPerm = newCornerPerm;
+        cornerOrient = newCornerOrient;
+        multiplyEdges(other);  // Edge flips are unaffected by mirroring
+    }
+
+    /**
+     * Returns the inverse cube as a new cube: the position that solves this one, so
+     * that this * inverse() and inverse() * this are both solved. Solving the
+     * inverse and reversing the solution (with every turn inverted) solves this cube.
+     */
+    public Cubie inverse() {
+        Cubie inv = new Cubie();
+        for (int i = 0; i < 8; i++) {
+            inv.cornerPerm[cornerPerm[i]] = i;
+            // A mirrored orientation (3-5) is its own inverse
+            int ori = cornerOrient[i];
+            inv.cornerOrient[cornerPerm[i]] = (byte) (ori >= 3 ? ori : (3 - ori) % 3);
+        }
+        for (int i = 0; i < 12; i++) {
+            inv.edgePerm[edgePerm[i]] = i;
+            inv.edgeOrient[edgePerm[i]] = edgeOrient[i];
+        }
+        return inv;
+    }
+
     // Coordinate extraction and setting methods
     // These convert between the 4-array representation and integer coordinates
     // used by the move/pruning tables.
@@ -214,29 +303,18 @@ public class Cubie {
      * - Permutation part: 4! = 24 ways to arrange 4 edges
      */
     public short getSlice() {
-        int posCoord = 0, count = 0;
-        int[] slice = new int[4];
+        int posCoord = 0, order = 0, count = 0;
 
-        // Find positions of slice edges (pieces 8-11) and encode combinatorially
+        // Find positions of slice edges (pieces 8-11) and encode combinatorially,
+        // collecting their order (last one found first)
         for (int j = 11; j >= 0; j--) {
             if (edgePerm[j] >= 8) {
-                posCoord += nCk(11 - j, count + 1);  // Combinatorial encoding of positions
-                slice[3 - count++] = edgePerm[j];
+                posCoord += BINOMIAL[11 - j][count + 1];
+                order |= (edgePerm[j] - 8) << (3 * (3 - count++));
             }
         }
 
-        // Encode permutation of the 4 slice edges using factorial number system
-        int permCoord = 0;
-        for (int j = 3; j > 0; j--) {
-            int rotations = 0;
-            while (slice[j] != j + 8) {
-                rotateLeft(slice, 0, j);
-                rotations++;
-            }
-            permCoord = (j + 1) * permCoord + rotations;
-        }
-
-        return (short) (24 * posCoord + permCoord);  // Combine position and permutation
+        return (short) (24 * posCoord + permRank(order, 4));  // Combine position and permutation
     }
 
     /**
@@ -244,35 +322,20 @@ public class Cubie {
      * Decodes the coordinate into positions and permutation, then places edges.
      */
     public void setSlice(short idx) {
-        int[] slice = {8, 9, 10, 11};     // Slice edge pieces
-        int[] other = {0, 1, 2, 3, 4, 5, 6, 7};  // Non-slice edges
-        int permCoord = idx % 24;   // Permutation part
-        int posCoord = idx / 24;    // Position part
-
-        // Clear all edge positions
-        for (int i = 0; i < 12; i++) edgePerm[i] = -1;
-
-        // Decode permutation using factorial number system
-        for (int j = 1; j < 4; j++) {
-            int rotations = permCoord % (j + 1);
-            permCoord /= (j + 1);
-            while (rotations-- > 0) rotateRight(slice, 0, j);
-        }
+        int order = ORDERS_4[idx % 24];  // Permutation part
+        int posCoord = idx / 24;         // Position part
 
-        // Place slice edges at positions decoded from combinatorial encoding
-        int count = 3;
+        // Place slice edges at positions decoded from combinatorial encoding,
+        // and the non-slice edges 0-7 in order everywhere else
+        int count = 3, other = 0;
         for (int j = 0; j <= 11; j++) {
-            if (posCoord - nCk(11 - j, count + 1) >= 0) {
-                edgePerm[j] = slice[3 - count];
-                posCoord -= nCk(11 - j, count-- + 1);
+            if (posCoord >= BINOMIAL[11 - j][count + 1]) {
+                edgePerm[j] = 8 + piece(order, 3 - count);
+                posCoord -= BINOMIAL[11 - j][count-- + 1];
+            } else {
+                edgePerm[j] = other++;
             }
         }
-
-        // Fill remaining positions with non-slice edges
-        count = 0;
-        for (int j = 0; j < 12; j++) {
-            if (edgePerm[j] == -1) edgePerm[j] = other[count++];
-        }
     }
 
     /**
@@ -281,58 +344,35 @@ public class Cubie {
      * Uses combinatorial encoding for positions + factorial encoding for permutation.
      */
     public short getCornerPerm() {
-        int posCoord = 0, count = 0;
-        int[] corners = new int[6];
+        int posCoord = 0, order = 0, count = 0;
 
         // Find corners 0-5 and encode their positions combinatorially
         for (int j = 0; j <= 7; j++) {
             if (cornerPerm[j] <= 5) {
-                posCoord += nCk(j, count + 1);
-                corners[count++] = cornerPerm[j];
+                posCoord += BINOMIAL[j][count + 1];
+                order |= cornerPerm[j] << (3 * count++);
             }
         }
 
-        // Encode permutation using factorial number system
-        int permCoord = 0;
-        for (int j = 5; j > 0; j--) {
-            int rotations = 0;
-            while (corners[j] != j) {
-                rotateLeft(corners, 0, j);
-                rotations++;
-            }
-            permCoord = (j + 1) * permCoord + rotations;
-        }
-
-        return (short) (720 * posCoord + permCoord);  // 6! = 720
+        return (short) (720 * posCoord + permRank(order, 6));  // 6! = 720
     }
 
     /** Set corner permutation from coordinate. Inverse of getCornerPerm(). */
     public void setCornerPerm(short idx) {
-        int[] corners = {0, 1, 2, 3, 4, 5};
-        int[] other = {6, 7};
-        int permCoord = idx % 720;
+        int order = ORDERS_6[idx % 720];
         int posCoord = idx / 720;
 
-        for (int i = 0; i < 8; i++) cornerPerm[i] = -1;
-
-        for (int j = 1; j < 6; j++) {
-            int rotations = permCoord % (j + 1);
-            permCoord /= (j + 1);
-            while (rotations-- > 0) rotateRight(corners, 0, j);
-        }
-
-        int count = 5;
+        // Corners 6 and 7 fill the free positions in order, so going down they
+        // are placed from the last one
+        int count = 5, other = 7;
         for (int j = 7; j >= 0; j--) {
-            if (posCoord - nCk(j, count + 1) >= 0) {
-                cornerPerm[j] = corners[count];
-                posCoord -= nCk(j, count-- + 1);
+            if (posCoord >= BINOMIAL[j][count + 1]) {
+                cornerPerm[j] = piece(order, count);
+                posCoord -= BINOMIAL[j][count-- + 1];
+            } else {
+                cornerPerm[j] = other--;
             }
         }
-
-        count = 0;
-        for (int j = 0; j <= 7; j++) {
-            if (cornerPerm[j] == -1) cornerPerm[j] = other[count++];
-        }
     }
 
     /**
@@ -341,56 +381,32 @@ public class Cubie {
      * Same encoding scheme as corner permutation.
      */
     public int getUDEdgePerm() {
-        int posCoord = 0, count = 0;
-        int[] edges = new int[6];
+        int posCoord = 0, order = 0, count = 0;
 
         for (int j = 0; j <= 11; j++) {
             if (edgePerm[j] <= 5) {
-                posCoord += nCk(j, count + 1);
-                edges[count++] = edgePerm[j];
-            }
-        }
-
-        int permCoord = 0;
-        for (int j = 5; j > 0; j--) {
-            int rotations = 0;
-            while (edges[j] != j) {
-                rotateLeft(edges, 0, j);
-                rotations++;
+                posCoord += BINOMIAL[j][count + 1];
+                order |= edgePerm[j] << (3 * count++);
             }
-            permCoord = (j + 1) * permCoord + rotations;
         }
 
-        return 720 * posCoord + permCoord;
+        return 720 * posCoord + permRank(order, 6);
     }
 
     /** Set UD edge permutation from coordinate. Inverse of getUDEdgePerm(). */
     public void setUDEdgePerm(int idx) {
-        int[] edges = {0, 1, 2, 3, 4, 5};
-        int[] other = {6, 7, 8, 9, 10, 11};
-        int permCoord = idx % 720;
+        int order = ORDERS_6[idx % 720];
         int posCoord = idx / 720;
 
-        for (int i = 0; i < 12; i++) edgePerm[i] = -1;
-
-        for (int j = 1; j < 6; j++) {
-            int rotations = permCoord % (j + 1);
-            permCoord /= (j + 1);
-            while (rotations-- > 0) rotateRight(edges, 0, j);
-        }
-
-        int count = 5;
+        int count = 5, other = 11;
         for (int j = 11; j >= 0; j--) {
-            if (posCoord - nCk(j, count + 1) >= 0) {
-                edgePerm[j] = edges[count];
-                posCoord -= nCk(j, count-- + 1);
+            if (posCoord >= BINOMIAL[j][count + 1]) {
+                edgePerm[j] = piece(order, count);
+                posCoord -= BINOMIAL[j][count-- + 1];
+            } else {
+                edgePerm[j] = other--;
             }
         }
-
-        count = 0;
-        for (int j = 0; j < 12; j++) {
-            if (edgePerm[j] == -1) edgePerm[j] = other[count++];
-        }
     }
 
     // Helper edge coordinates for efficient phase 2 computation
@@ -399,120 +415,133 @@ public class Cubie {
 
     /** Get coordinate for edges UR, UF, UL (pieces 0, 1, 2). Range: 0-1319. */
     public short getURtoUL() {
-        int posCoord = 0, count = 0;
-        int[] edges = new int[3];
-
-        for (int j = 0; j <= 11; j++) {
-            if (edgePerm[j] <= 2) {
-                posCoord += nCk(j, count + 1);
-                edges[count++] = edgePerm[j];
-            }
-        }
-
-        int permCoord = 0;
-        for (int j = 2; j > 0; j--) {
-            int rotations = 0;
-            while (edges[j] != j) {
-                rotateLeft(edges, 0, j);
-                rotations++;
-            }
-            permCoord = (j + 1) * permCoord + rotations;
-        }
-
-        return (short) (6 * posCoord + permCoord);  // 3! = 6
+        return (short) helperCoord(0);
     }
 
     /** Set edge permutation from URtoUL coordinate. Only sets edges 0-2. */
     public void setURtoUL(short idx) {
-        int[] edges = {0, 1, 2};
-        int permCoord = idx % 6;
-        int posCoord = idx / 6;
-
-        for (int i = 0; i < 12; i++) edgePerm[i] = 11;  // Mark as unset
-
-        for (int j = 1; j < 3; j++) {
-            int rotations = permCoord % (j + 1);
-            permCoord /= (j + 1);
-            while (rotations-- > 0) rotateRight(edges, 0, j);
-        }
-
-        int count = 2;
-        for (int j = 11; j >= 0; j--) {
-            if (posCoord - nCk(j, count + 1) >= 0) {
-                edgePerm[j] = edges[count];
-                posCoord -= nCk(j, count-- + 1);
-            }
-        }
+        setHelper(idx, 0);
     }
 
     /** Get coordinate for edges UB, DR, DF (pieces 3, 4, 5). Range: 0-1319. */
     public short getUBtoDF() {
-        int posCoord = 0, count = 0;
-        int[] edges = new int[3];
+        return (short) helperCoord(3);
+    }
+
+    /** Set edge permutation from UBtoDF coordinate. Only sets edges 3-5. */
+    public void setUBtoDF(short idx) {
+        setHelper(idx, 3);
+    }
+
+    /** Coordinate of edges first..first + 2: 6 * (combinatorial position) + permutation. */
+    private int helperCoord(int first) {
+        int posCoord = 0, order = 0, count = 0;
 
         for (int j = 0; j <= 11; j++) {
-            if (edgePerm[j] >= 3 && edgePerm[j] <= 5) {
-                posCoord += nCk(j, count + 1);
-                edges[count++] = edgePerm[j];
+            int piece = edgePerm[j] - first;
+            if (piece >= 0 && piece <= 2) {
+                posCoord += BINOMIAL[j][count + 1];
+                order |= piece << (3 * count++);
             }
         }
 
-        int permCoord = 0;
-        for (int j = 2; j > 0; j--) {
-            int rotations = 0;
-            while (edges[j] != 3 + j) {
-                rotateLeft(edges, 0, j);
-                rotations++;
-            }
-            permCoord = (j + 1) * permCoord + rotations;
-        }
+        return 6 * posCoord + permRank(order, 3);  // 3! = 6
+    }
 
-        return (short) (6 * posCoord + permCoord);
+    /** Place edges first..first + 2 from a helper coordinate, marking all other positions 11 (unset). */
+    private void setHelper(int idx, int first) {
+        long pieces = helperPieces(idx);
+        for (int j = 0; j < 12; j++) {
+            int piece = (int) (pieces >>> (4 * j)) & 0xF;
+            edgePerm[j] = piece == 0xF ? 11 : first + piece;
+        }
     }
 
-    /** Set edge permutation from UBtoDF coordinate. Only sets edges 3-5. */
-    public void setUBtoDF(short idx) {
-        int[] edges = {3, 4, 5};
-        int permCoord = idx % 6;
+    /**
+     * Positions of the three pieces of a helper coordinate: 4 bits per position,
+     * holding the piece (0-2, relative to the first piece) or 0xF if it's free.
+     */
+    private static long helperPieces(int idx) {
+        int order = ORDERS_3[idx % 6];
         int posCoord = idx / 6;
 
-        for (int i = 0; i < 12; i++) edgePerm[i] = 11;
-
-        for (int j = 1; j < 3; j++) {
-            int rotations = permCoord % (j + 1);
-            permCoord /= (j + 1);
-            while (rotations-- > 0) rotateRight(edges, 0, j);
-        }
-
+        long pieces = -1L;
         int count = 2;
         for (int j = 11; j >= 0; j--) {
-            if (posCoord - nCk(j, count + 1) >= 0) {
-                edgePerm[j] = edges[count];
-                posCoord -= nCk(j, count-- + 1);
+            if (posCoord >= BINOMIAL[j][count + 1]) {
+                pieces ^= (long) (0xF ^ piece(order, count)) << (4 * j);
+                posCoord -= BINOMIAL[j][count-- + 1];
             }
         }
+        return pieces;
     }
 
     /**
      * Merge URtoUL and UBtoDF helper coordinates into full UDEdgePerm.
-     * Creates two partial cubes, combines their edge info, and extracts the result.
+     * Places both sets of pieces, and ranks the combined positions like getUDEdgePerm().
      * Returns -1 if the coordinates conflict (shouldn't happen with valid inputs).
      */
     public static int mergeURtoULandUBtoDF(short urToUl, short ubToDf) {
-        Cubie cubeA = new Cubie();
-        Cubie cubeB = new Cubie();
-        cubeA.setURtoUL(urToUl);
-        cubeB.setUBtoDF(ubToDf);
+        long a = helperPieces(urToUl);
+        long b = helperPieces(ubToDf);
 
-        // Merge: copy edges from cubeA into cubeB where cubeB is unset
-        for (int i = 0; i < 8; i++) {
-            if (cubeA.edgePerm[i] != 11) {
-                if (cubeB.edgePerm[i] != 11) return -1;  // Both set = conflict
-                cubeB.edgePerm[i] = cubeA.edgePerm[i];
+        int posCoord = 0, order = 0, count = 0;
+        for (int j = 0; j <= 11; j++) {
+            int pieceA = (int) (a >>> (4 * j)) & 0xF;
+            int pieceB = (int) (b >>> (4 * j)) & 0xF;
+            // Only the first 8 positions are merged, as the helpers never leave them in phase 2
+            if (j >= 8) pieceA = 0xF;
+            if (pieceA != 0xF && pieceB != 0xF) return -1;  // Both set = conflict
+
+            int piece = pieceA != 0xF ? pieceA : pieceB != 0xF ? 3 + pieceB : 0xF;
+            if (piece != 0xF) {
+                posCoord += BINOMIAL[j][count + 1];
+                order |= piece << (3 * count++);
             }
         }
+        if (count != 6) return -1;
 
-        return cubeB.getUDEdgePerm();
+        return 720 * posCoord + permRank(order, 6);
+    }
+
+    /** Rank of an order of n pieces (packed as in ORDERS_n), looked up by all pieces but the last. */
+    private static int permRank(int order, int n) {
+        int key = order & ((1 << (3 * (n - 1))) - 1);
+        return n == 6 ? RANKS_6[key] : n == 4 ? RANKS_4[key] : RANKS_3[key];
+    }
+
+    private static int piece(int order, int index) {
+        return (order >>> (3 * index)) & 7;
+    }
+
+    /** Orders of n pieces by permutation rank, 3 bits per piece, the first in the lowest bits. */
+    private static int[] orders(int n) {
+        int factorial = 1;
+        for (int i = 2; i <= n; i++) factorial *= i;
+
+        int[] orders = new int[factorial];
+        int[] pieces = new int[n];
+        for (int idx = 0; idx < factorial; idx++) {
+            for (int i = 0; i < n; i++) pieces[i] = i;
+            // Decode using factorial number system
+            int permCoord = idx;
+            for (int j = 1; j < n; j++) {
+                int rotations = permCoord % (j + 1);
+                permCoord /= (j + 1);
+                while (rotations-- > 0) rotateRight(pieces, 0, j);
+            }
+            for (int i = 0; i < n; i++) orders[idx] |= pieces[i] << (3 * i);
+        }
+        return orders;
+    }
+
+    /** Inverse of an ORDERS_n table, indexed by the order without its last piece. */
+    private static short[] ranks(int[] orders, int n) {
+        short[] ranks = new short[1 << (3 * (n - 1))];
+        for (int rank = 0; rank < orders.length; rank++) {
+            ranks[orders[rank] & (ranks.length - 1)] = (short) rank;
+        }
+        return ranks;
     }
 
     /**
@@ -614,13 +643,6 @@ public class Cubie {
         return result;
     }
 
-    /** Rotate array elements left within range [left,right]: arr[left] moves to arr[right] */
-    private static void rotateLeft(int[] arr, int left, int right) {
-        int temp = arr[left];
-        for (int i = left; i < right; i++) arr[i] = arr[i + 1];
-        arr[right] = temp;
-    }
-
     /** Rotate array elements right within range [left,right]: arr[right] moves to arr[left] */
     private static void rotateRight(int[] arr, int left, int right) {
         int temp = arr[right];
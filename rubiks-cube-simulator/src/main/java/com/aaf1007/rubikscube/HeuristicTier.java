@@ -0,0 +1,62 @@
+package com.aaf1007.rubikscube;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Pruning table sets the solver can run with, trading memory for search speed.
+ *
+ * Every tier includes the tables of the tiers below it:
+ * - SMALL:  the nibble-packed slice x twist/flip/corner/edge tables (~6 MB on the heap)
+ * - MEDIUM: adds the symmetry-reduced flip x slice x twist phase 1 table (~70 MB)
+ * - LARGE:  adds the corner x UD edge permutation phase 2 table (~200 MB)
+ * The MEDIUM and LARGE tables are memory-mapped from the table cache, so they're
+ * shared by all solver JVMs on a host.
+ *
+ * The tier is chosen once, when Tables is loaded, with -Drubikscube.tier=small|medium|large.
+ * The default, auto, picks the largest tier that fits comfortably in Runtime.maxMemory()
+ * and whose tables are already in the table cache. Building the MEDIUM and LARGE
+ * tables takes far longer than a solve, so auto never does it: run once with the
+ * tier set explicitly to build its cache, and later auto runs pick it up.
+ */
+public enum HeuristicTier {
+    SMALL,
+    MEDIUM,
+    LARGE;
+
+    // Smallest max heap that selects a cached tier automatically, so small JVMs
+    // (e.g. many solvers side by side) keep to the small tables.
+    private static final long MEDIUM_MIN_HEAP = 512L << 20;
+    private static final long LARGE_MIN_HEAP = 2L << 30;
+
+    /**
+     * The tier configured with -Drubikscube.tier, or the largest cached one that
+     * fits the maximum heap size if the property is unset or "auto". An unknown
+     * value is reported on stderr and treated as "auto": this runs in the static
+     * initializer of Tables, where an exception would leave Tables unusable.
+     */
+    static HeuristicTier select() {
+        String configured = System.getProperty("rubikscube.tier", "auto");
+        if (!configured.equalsIgnoreCase("auto")) {
+            try {
+                return valueOf(configured.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Unknown -Drubikscube.tier=" + configured
+                    + ", expected small, medium, large or auto; using auto");
+            }
+        }
+
+        long maxMemory = Runtime.getRuntime().maxMemory();
+        boolean mediumCached = isCached("phase1-sym");
+        if (maxMemory >= LARGE_MIN_HEAP && mediumCached && isCached("phase2-large")) return LARGE;
+        if (maxMemory >= MEDIUM_MIN_HEAP && mediumCached) return MEDIUM;
+        return SMALL;
+    }
+
+    /** Whether the table cache has a file for the given table group (it's checked when loaded). */
+    private static boolean isCached(String name) {
+        Path file = TableCache.path(name);
+        return file != null && Files.isRegularFile(file);
+    }
+}
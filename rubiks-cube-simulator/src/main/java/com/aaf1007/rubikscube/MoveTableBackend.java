@@ -0,0 +1,31 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Storage backend for the coordinate move tables read by the search in TwoPhase.
+ *
+ * Every method maps (coordinate, move) to the coordinate after the move, with the
+ * same values as the corresponding short[][] table in Tables. The backend in use
+ * is chosen once at startup (Tables.moves), so the JIT sees a single implementation
+ * and inlines the lookups into the search loops.
+ *
+ * Move encoding: U=0,1,2, R=3,4,5, F=6,7,8, D=9,10,11, L=12,13,14, B=15,16,17
+ */
+public interface MoveTableBackend {
+
+    int twist(int twist, int move);
+
+    int flip(int flip, int move);
+
+    int slice(int slice, int move);
+
+    int cornerPerm(int cornerPerm, int move);
+
+    int udEdgePerm(int udEdgePerm, int move);
+
+    int urToUl(int urToUl, int move);
+
+    int ubToDf(int ubToDf, int move);
+
+    /** Merge the two helper edge coordinates (both below 336) into the UD edge permutation. */
+    int merge(int urToUl, int ubToDf);
+}
@@ -0,0 +1,93 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Micro-benchmark comparing the move table backends.
+ *
+ * Runs two dependent lookup chains that mirror the search in TwoPhase:
+ * - Phase 1: flip, twist and slice position under all 18 moves
+ * - Phase 2: corner permutation, UD edge permutation and slice under phase 2 moves
+ * Each lookup depends on the previous result, so the timings include the memory
+ * latency of the table layout rather than just throughput.
+ *
+ * usage: java com.aaf1007.rubikscube.MoveTableBenchmark [array|segment] [iterations]
+ * Benchmark one backend per JVM to match production, where only one backend is
+ * ever loaded and the JIT can inline it. Without arguments both are measured.
+ * The segments measured are mapped from the table cache when the JVM runs with
+ * -Drubikscube.moveTables=segment, and copies of the arrays otherwise.
+ */
+public class MoveTableBenchmark {
+
+    // Phase 2 moves: U, U2, U', D, D2, D', R2, F2, L2, B2
+    private static final int[] PHASE2_MOVES = {0, 1, 2, 9, 10, 11, 4, 7, 13, 16};
+
+    public static void main(String[] args) {
+        String which = args.length > 0 ? args[0] : "both";
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 50_000_000;
+
+        // Load the tables first so table loading isn't part of any measurement
+        Tables.await(Tables.Group.PHASE2);
+        System.out.println("Tables loaded, default backend: " + Tables.moves.getClass().getSimpleName());
+
+        if (!which.equals("segment")) {
+            if (Tables.twistMove != null) run("array", new ArrayMoveTables(), iterations);
+            else System.out.println("array    skipped: the arrays aren't allocated with -Drubikscube.moveTables=segment");
+        }
+        if (!which.equals("array")) run("segment", segmentTables(), iterations);
+    }
+
+    /** The segment backend in use, or segment copies of the array tables. */
+    private static MoveTableBackend segmentTables() {
+        if (Tables.moves instanceof SegmentMoveTables) return Tables.moves;
+
+        SegmentMoveTables segments = new SegmentMoveTables();
+        segments.copy(Tables.Group.PHASE1, new short[][][] {Tables.twistMove, Tables.flipMove, Tables.sliceMove});
+        segments.copy(Tables.Group.PHASE2, new short[][][] {Tables.cornerPermMove, Tables.udEdgePermMove,
+            Tables.urToUlMove, Tables.ubToDfMove, Tables.mergeURtoULandUBtoDF});
+        return segments;
+    }
+
+    private static void run(String name, MoveTableBackend tables, int iterations) {
+        // Warm up so both kernels are compiled before timing
+        for (int i = 0; i < 5; i++) {
+            phase1(tables, iterations / 10);
+            phase2(tables, iterations / 10);
+        }
+
+        long start = System.nanoTime();
+        int sink = phase1(tables, iterations);
+        double phase1Ns = (System.nanoTime() - start) / (3.0 * iterations);
+
+        start = System.nanoTime();
+        sink += phase2(tables, iterations);
+        double phase2Ns = (System.nanoTime() - start) / (3.0 * iterations);
+
+        System.out.printf("%-8s phase 1: %5.2f ns/lookup   phase 2: %5.2f ns/lookup   (checksum %d)%n",
+            name, phase1Ns, phase2Ns, sink);
+    }
+
+    private static int phase1(MoveTableBackend tables, int iterations) {
+        int flip = 0, twist = 0, slice = 0;
+        int seed = 12345;
+        for (int i = 0; i < iterations; i++) {
+            seed = seed * 1103515245 + 12345;       // Cheap LCG for pseudo-random moves
+            int move = (seed >>> 16) % 18;
+            flip = tables.flip(flip, move);
+            twist = tables.twist(twist, move);
+            slice = tables.slice(slice, move);
+        }
+        return flip + twist + slice;
+    }
+
+    private static int phase2(MoveTableBackend tables, int iterations) {
+        int corner = 0, edge = 0, slice = 0;
+        int seed = 67890;
+        for (int i = 0; i < iterations; i++) {
+            seed = seed * 1103515245 + 12345;
+            int move = PHASE2_MOVES[(seed >>> 16) % PHASE2_MOVES.length];
+            corner = tables.cornerPerm(corner, move);
+            edge = tables.udEdgePerm(edge, move);
+            slice = tables.slice(slice, move);
+        }
+        return corner + edge + slice;
+    }
+}
@@ -0,0 +1,68 @@
+package com.aaf1007.rubikscube;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark of OptimalSolver on the scramble test cases.
+ *
+ * Solves every scramble*.txt optimally and prints the solution length and time
+ * next to the two-phase solution, plus the nodes expanded per depth bound.
+ * Scrambles whose optimal solution is long may hit the time budget; they are
+ * reported with the deepest bound that was searched completely.
+ *
+ * usage: java com.aaf1007.rubikscube.OptimalBenchmark [timeoutSeconds] [threads] [testcase dir]
+ */
+public class OptimalBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        long timeOut = args.length > 0 ? Long.parseLong(args[0]) : 60;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        File dir = new File(args.length > 2 ? args[2] : "src/main/java/com/aaf1007/rubikscube/testcases");
+
+        File[] files = dir.listFiles((d, name) -> name.startsWith("scramble") && name.endsWith(".txt"));
+        if (files == null || files.length == 0) {
+            System.out.println("No scramble*.txt files in " + dir);
+            return;
+        }
+        Arrays.sort(files);
+
+        // Load the pattern databases first so building them isn't part of any measurement
+        long start = System.currentTimeMillis();
+        PatternDatabases.get();
+        System.out.printf("Pattern databases loaded in %d ms, %d threads%n",
+            System.currentTimeMillis() - start, threads);
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (File file : files) {
+                Cubie cube = new RubiksCube(file.getPath()).toCubie();
+                String twoPhase = TwoPhase.solve(cube, 25, 10);
+
+                long[] nodes = new long[1];
+                start = System.currentTimeMillis();
+                String optimal = OptimalSolver.solve(cube, timeOut, pool, (depth, total, elapsed) -> {
+                    nodes[0] = total;
+                    System.out.printf("    depth %2d: %,d nodes, %d ms%n", depth, total, elapsed);
+                });
+                long time = System.currentTimeMillis() - start;
+
+                System.out.printf("%-16s optimal: %-8s two-phase: %2s moves   %,d ms   %,.0f nodes/s%n",
+                    file.getName(), optimal.startsWith("Error") ? optimal : length(optimal) + " moves",
+                    length(twoPhase), time, nodes[0] * 1000.0 / Math.max(1, time));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Number of moves in a solution string (UUU counts as one move, U'). */
+    private static int length(String solution) {
+        int moves = 0;
+        for (int i = 0; i < solution.length(); i++) {
+            if (i == 0 || solution.charAt(i) != solution.charAt(i - 1)) moves++;
+        }
+        return moves;
+    }
+}
@@ -0,0 +1,258 @@
+package com.aaf1007.rubikscube;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optimal solver: finds a shortest solution with IDA* over all 18 moves, using
+ * the corner and edge pattern databases in PatternDatabases as the heuristic
+ * (Korf's algorithm).
+ *
+ * Unlike TwoPhase, the result is provably minimal, but the search is far more
+ * expensive: positions up to ~15 moves solve in seconds, while the hardest
+ * positions (17-20 moves) can take hours. The pattern databases are built on the
+ * first solve (a few minutes, ~86 MB) and cached like the two-phase tables.
+ *
+ * Every depth bound is searched in parallel: the tree is split after its first two
+ * moves and the 243 subtrees are searched as tasks on a ForkJoinPool. The first
+ * solution found at the current bound is optimal and stops all workers.
+ */
+public final class OptimalSolver {
+
+    // God's number: every position can be solved in 20 moves
+    private static final int MAX_DEPTH = 20;
+
+    // Moves fixed per parallel task
+    private static final int SPLIT_DEPTH = 2;
+
+    // Nodes a worker expands between checks of the deadline and the stop flag
+    private static final int CHECK_INTERVAL = 1 << 16;
+
+    /** Receives search progress after every depth bound, including the one with the solution. */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param depth   Depth bound that was searched
+         * @param nodes   Total nodes expanded so far
+         * @param elapsed Milliseconds since the search started
+         */
+        void onProgress(int depth, long nodes, long elapsed);
+    }
+
+    // Search stacks, one per worker thread
+    private static final ThreadLocal<Worker> WORKERS = ThreadLocal.withInitial(Worker::new);
+
+    private OptimalSolver() {}
+
+    /**
+     * Find an optimal solution on the common ForkJoinPool.
+     *
+     * @param cube    The cube to solve (as piece representation)
+     * @param timeOut Timeout in seconds (shifted left 10 bits for milliseconds)
+     * @return Solution string in TwoPhase.solve format, or "Error N" as TwoPhase.solve
+     *         (8 = timeout)
+     */
+    public static String solve(Cubie cube, long timeOut) {
+        return solve(cube, timeOut, ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * Find an optimal solution on the given pool, reporting progress after every
+     * depth bound.
+     *
+     * @param progress May be null
+     */
+    public static String solve(Cubie cube, long timeOut, ForkJoinPool pool, ProgressListener progress) {
+        int result = cube.verify();
+        if (result != 0) return "Error " + Math.abs(result);
+
+        PatternDatabases databases = PatternDatabases.get();
+        Search search = new Search(databases, timeOut);
+
+        // Piece codes of the start position at depth 0 of every worker
+        int[] corners = new int[8];
+        int[] edges = new int[12];
+        for (int pos = 0; pos < 8; pos++) {
+            corners[cube.cornerPerm[pos]] = pos * 3 + cube.cornerOrient[pos];
+        }
+        for (int pos = 0; pos < 12; pos++) {
+            edges[cube.edgePerm[pos]] = pos * 2 + cube.edgeOrient[pos];
+        }
+
+        int bound = Math.max(databases.cornerDistance(corners, 0),
+            Math.max(databases.edgeDistance(edges, 0, 0), databases.edgeDistance(edges, 0, 6)));
+        if (bound == 0) return "";  // Already solved
+
+        for (; bound <= MAX_DEPTH; bound++) {
+            int[][] prefixes = TwoPhase.movePrefixes(Math.min(SPLIT_DEPTH, bound));
+            pool.invoke(new SearchPrefixes(search, corners, edges, bound, prefixes, 0, prefixes.length));
+
+            if (search.timedOut && search.solution == null) return "Error 8";
+            if (progress != null) {
+                progress.onProgress(bound, search.nodes.sum(), System.currentTimeMillis() - search.startTime);
+            }
+            if (search.solution != null) return search.solution;
+        }
+        return "Error 7";  // Can't happen for a valid cube
+    }
+
+    /** State shared by the workers of one solve. */
+    private static final class Search {
+        final PatternDatabases databases;
+        final long startTime;
+        final long deadline;
+        final LongAdder nodes = new LongAdder();
+
+        volatile boolean stopped;  // Solution found or timed out
+        volatile boolean timedOut;
+        volatile String solution;
+
+        Search(PatternDatabases databases, long timeOut) {
+            this.databases = databases;
+            this.startTime = System.currentTimeMillis();
+            this.deadline = startTime + (timeOut << 10);
+        }
+
+        synchronized void found(int[] faces, int[] turns, int length) {
+            if (solution != null) return;
+
+            // Same format as TwoPhase: U' becomes UUU and etc...
+            StringBuilder moves = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                moves.append(String.valueOf("URFDLB".charAt(faces[i])).repeat(turns[i]));
+            }
+            solution = moves.toString();
+            stopped = true;
+        }
+    }
+
+    /** Per-thread search stacks: piece codes at every depth and the moves leading there. */
+    private static final class Worker {
+        final int[] corners = new int[(MAX_DEPTH + 1) * 8];
+        final int[] edges = new int[(MAX_DEPTH + 1) * 12];
+        final int[] faces = new int[MAX_DEPTH];
+        final int[] turns = new int[MAX_DEPTH];
+        long nodes;  // Nodes not yet added to Search.nodes
+
+        /**
+         * Apply a move to the pieces at depth, storing them at depth + 1, and return
+         * the heuristic there, or stop early and return a value above 'limit' as soon
+         * as one database exceeds it.
+         */
+        int move(PatternDatabases databases, int depth, int move, int limit) {
+            int base = move * 24;
+            int from = depth * 8;
+            for (int c = 0; c < 8; c++) {
+                corners[from + 8 + c] = PatternDatabases.CORNER_MOVE[base + corners[from + c]];
+            }
+            int h = databases.cornerDistance(corners, from + 8);
+            if (h > limit) return h;
+
+            from = depth * 12;
+            for (int e = 0; e < 12; e++) {
+                edges[from + 12 + e] = PatternDatabases.EDGE_MOVE[base + edges[from + e]];
+            }
+            h = Math.max(h, databases.edgeDistance(edges, from + 12, 0));
+            if (h > limit) return h;
+            return Math.max(h, databases.edgeDistance(edges, from + 12, 6));
+        }
+
+        /**
+         * Depth-first search below 'depth' for solutions of exactly 'bound' moves.
+         * Faces are ordered as in TwoPhase: never the same face twice in a row, and
+         * opposite faces only in one order.
+         *
+         * @return true if a solution was found (or the search was stopped)
+         */
+        boolean search(Search search, int depth, int bound) {
+            if (++nodes >= CHECK_INTERVAL) {
+                search.nodes.add(nodes);
+                nodes = 0;
+                if (System.currentTimeMillis() > search.deadline) {
+                    search.timedOut = true;
+                    search.stopped = true;
+                }
+            }
+            if (search.stopped) return true;
+
+            int previous = depth > 0 ? faces[depth - 1] : -1;
+            for (int face = 0; face < 6; face++) {
+                if (face == previous || previous - 3 == face) continue;
+
+                for (int turn = 1; turn <= 3; turn++) {
+                    int h = move(search.databases, depth, 3 * face + turn - 1, bound - depth - 1);
+                    if (depth + 1 + h > bound) continue;
+
+                    faces[depth] = face;
+                    turns[depth] = turn;
+                    if (h == 0) {
+                        // All three databases at 0 means every piece is solved
+                        search.found(faces, turns, depth + 1);
+                        return true;
+                    }
+                    if (search(search, depth + 1, bound)) return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Searches the subtrees below move prefixes [from, to) for one depth bound,
+     * splitting the range in halves so idle workers can steal subtrees.
+     */
+    @SuppressWarnings("serial")  // Fork-join tasks are never serialized
+    private static final class SearchPrefixes extends RecursiveAction {
+        private final Search search;
+        private final int[] corners, edges;
+        private final int bound;
+        private final int[][] prefixes;
+        private final int from, to;
+
+        SearchPrefixes(Search search, int[] corners, int[] edges, int bound, int[][] prefixes, int from, int to) {
+            this.search = search;
+            this.corners = corners;
+            this.edges = edges;
+            this.bound = bound;
+            this.prefixes = prefixes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SearchPrefixes(search, corners, edges, bound, prefixes, from, mid),
+                          new SearchPrefixes(search, corners, edges, bound, prefixes, mid, to));
+                return;
+            }
+            if (from == to || search.stopped) return;
+
+            Worker worker = WORKERS.get();
+            System.arraycopy(corners, 0, worker.corners, 0, 8);
+            System.arraycopy(edges, 0, worker.edges, 0, 12);
+
+            // Apply the prefix, dropping it as soon as the heuristic rules it out
+            int[] prefix = prefixes[from];
+            int length = prefix.length / 2;
+            int h = 0;
+            for (int depth = 0; depth < length; depth++) {
+                worker.faces[depth] = prefix[2 * depth];
+                worker.turns[depth] = prefix[2 * depth + 1];
+                h = worker.move(search.databases, depth, 3 * prefix[2 * depth] + prefix[2 * depth + 1] - 1,
+                    bound - depth - 1);
+                if (depth + 1 + h > bound) return;
+            }
+
+            if (h == 0) {
+                search.found(worker.faces, worker.turns, length);
+            } else {
+                worker.search(search, length, bound);
+            }
+            search.nodes.add(worker.nodes);
+            worker.nodes = 0;
+        }
+    }
+}
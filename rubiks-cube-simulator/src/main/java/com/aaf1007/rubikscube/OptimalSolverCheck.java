@@ -0,0 +1,49 @@
+package com.aaf1007.rubikscube;
+
+import java.io.File;
+import java.util.Arrays;
+
+/**
+ * Checks OptimalSolver against TwoPhase on the scramble test cases: every
+ * optimal solution must solve the cube and be no longer than the two-phase
+ * solution. Scrambles that hit the time budget are reported and skipped.
+ *
+ * usage: java com.aaf1007.rubikscube.OptimalSolverCheck [timeoutSeconds] [testcase dir]
+ */
+public class OptimalSolverCheck {
+
+    public static void main(String[] args) throws Exception {
+        long timeOut = args.length > 0 ? Long.parseLong(args[0]) : 30;
+        File dir = new File(args.length > 1 ? args[1] : "src/main/java/com/aaf1007/rubikscube/testcases");
+
+        File[] files = dir.listFiles((d, name) -> name.startsWith("scramble") && name.endsWith(".txt"));
+        if (files == null || files.length == 0) throw new IllegalStateException("No scramble*.txt files in " + dir);
+        Arrays.sort(files);
+
+        int checked = 0;
+        for (File file : files) {
+            Cubie cube = new RubiksCube(file.getPath()).toCubie();
+            String twoPhase = TwoPhase.solve(cube, 25, 10);
+            check(!twoPhase.startsWith("Error"), file.getName() + ": two-phase search failed with " + twoPhase);
+
+            String optimal = OptimalSolver.solve(cube, timeOut);
+            if (optimal.startsWith("Error")) {
+                System.out.printf("%-16s skipped: %s%n", file.getName(), optimal);
+                continue;
+            }
+            check(Algorithm.compile(optimal).solves(cube), file.getName() + ": " + optimal + " doesn't solve the cube");
+            int optimalLength = Algorithm.compile(optimal).length();
+            int twoPhaseLength = Algorithm.compile(twoPhase).length();
+            check(optimalLength <= twoPhaseLength, file.getName() + ": optimal solution " + optimal
+                + " is longer than two-phase solution " + twoPhase);
+            System.out.printf("%-16s optimal: %2d moves   two-phase: %2d moves%n", file.getName(), optimalLength, twoPhaseLength);
+            checked++;
+        }
+        check(checked > 0, "every scramble hit the time budget");
+        System.out.println("OptimalSolver: all checks passed");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
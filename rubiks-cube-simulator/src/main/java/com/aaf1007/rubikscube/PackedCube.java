@@ -0,0 +1,175 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Cube state packed into two longs, for simulating moves without allocating.
+ *
+ * Cubie stores which piece is at each position and allocates new arrays for every
+ * quarter turn. PackedCube stores, for every piece, where it is: piece i is encoded
+ * as position * 3 + orientation for corners and position * 2 + orientation for
+ * edges, 5 bits each (corners in bits 0-39 of one long, edges in bits 0-59 of the
+ * other). A move maps each piece code on its own through a table covering all 18
+ * moves, so a half or counter-clockwise turn costs the same as a quarter turn.
+ *
+ * Conversion to and from Cubie is lossless for regular cubes; mirrored cubes
+ * (orientations 3-5, see Symmetry) can't be represented.
+ *
+ * usage:
+ *   PackedCube cube = new PackedCube(cubie);
+ *   cube.applyMove(2);   // U'
+ *   boolean solved = cube.isSolved();
+ */
+public final class PackedCube {
+
+    // Piece moves: [move * 24 + pieceCode] -> piece code after the move. Move-major,
+    // so the 20 lookups of one move read 48 adjacent bytes.
+    static final byte[] CORNER_MOVE = new byte[Tables.N_MOVES * 24];
+    static final byte[] EDGE_MOVE = new byte[Tables.N_MOVES * 24];
+
+    private static final long SOLVED_CORNERS;
+    private static final long SOLVED_EDGES;
+
+    static {
+        for (int m = 0; m < Tables.N_MOVES; m++) {
+            // After a move, position q holds the piece that was at cornerPerm[q],
+            // with its orientation increased by cornerOrient[q]
+            Cubie cube = new Cubie();
+            cube.applyMove(m);
+            for (int q = 0; q < 8; q++) {
+                for (int o = 0; o < 3; o++) {
+                    CORNER_MOVE[m * 24 + cube.cornerPerm[q] * 3 + o] =
+                        (byte) (q * 3 + (o + cube.cornerOrient[q]) % 3);
+                }
+            }
+            for (int q = 0; q < 12; q++) {
+                for (int o = 0; o < 2; o++) {
+                    EDGE_MOVE[m * 24 + cube.edgePerm[q] * 2 + o] =
+                        (byte) (q * 2 + (o + cube.edgeOrient[q]) % 2);
+                }
+            }
+        }
+
+        long corners = 0;
+        for (int i = 0; i < 8; i++) corners |= (long) (i * 3) << (5 * i);
+        long edges = 0;
+        for (int i = 0; i < 12; i++) edges |= (long) (i * 2) << (5 * i);
+        SOLVED_CORNERS = corners;
+        SOLVED_EDGES = edges;
+    }
+
+    private long corners;
+    private long edges;
+
+    /** Solved cube. */
+    public PackedCube() {
+        corners = SOLVED_CORNERS;
+        edges = SOLVED_EDGES;
+    }
+
+    /** Copy of another packed cube. */
+    public PackedCube(PackedCube other) {
+        corners = other.corners;
+        edges = other.edges;
+    }
+
+    /** Packed copy of a regular (not mirrored) Cubie. */
+    public PackedCube(Cubie cube) {
+        set(cube);
+    }
+
+    /** Set this cube to the state of a regular (not mirrored) Cubie. */
+    public void set(Cubie cube) {
+        long c = 0;
+        for (int pos = 0; pos < 8; pos++) {
+            c |= (long) (pos * 3 + cube.cornerOrient[pos]) << (5 * cube.cornerPerm[pos]);
+        }
+        long e = 0;
+        for (int pos = 0; pos < 12; pos++) {
+            e |= (long) (pos * 2 + cube.edgeOrient[pos]) << (5 * cube.edgePerm[pos]);
+        }
+        corners = c;
+        edges = e;
+    }
+
+    /** The state as a new Cubie. */
+    public Cubie toCubie() {
+        Cubie cube = new Cubie();
+        for (int piece = 0; piece < 8; piece++) {
+            int code = (int) (corners >>> (5 * piece)) & 0x1F;
+            cube.cornerPerm[code / 3] = piece;
+            cube.cornerOrient[code / 3] = (byte) (code % 3);
+        }
+        for (int piece = 0; piece < 12; piece++) {
+            int code = (int) (edges >>> (5 * piece)) & 0x1F;
+            cube.edgePerm[code >> 1] = piece;
+            cube.edgeOrient[code >> 1] = (byte) (code & 1);
+        }
+        return cube;
+    }
+
+    /**
+     * Apply a move in place.
+     *
+     * @param move Move index 0-17, as Cubie.applyMove
+     */
+    public void applyMove(int move) {
+        int base = move * 24;
+        long c = 0;
+        for (int shift = 0; shift < 40; shift += 5) {
+            int code = (int) (corners >>> shift) & 0x1F;
+            c |= (long) CORNER_MOVE[base + code] << shift;
+        }
+        long e = 0;
+        for (int shift = 0; shift < 60; shift += 5) {
+            int code = (int) (edges >>> shift) & 0x1F;
+            e |= (long) EDGE_MOVE[base + code] << shift;
+        }
+        corners = c;
+        edges = e;
+    }
+
+    /**
+     * Multiply in place by another cube, as Cubie.multiply: the result represents
+     * applying 'other' after this. A piece at position q moves to wherever 'other'
+     * takes the piece at q, adding the orientation it gets there.
+     */
+    public void multiply(PackedCube other) {
+        long c = 0;
+        for (int shift = 0; shift < 40; shift += 5) {
+            int code = (int) (corners >>> shift) & 0x1F;
+            int target = (int) (other.corners >>> (5 * (code / 3))) & 0x1F;
+            c |= (long) (target / 3 * 3 + (code % 3 + target % 3) % 3) << shift;
+        }
+        long e = 0;
+        for (int shift = 0; shift < 60; shift += 5) {
+            int code = (int) (edges >>> shift) & 0x1F;
+            int target = (int) (other.edges >>> (5 * (code >> 1))) & 0x1F;
+            e |= (long) (target ^ (code & 1)) << shift;
+        }
+        corners = c;
+        edges = e;
+    }
+
+    public boolean isSolved() {
+        return corners == SOLVED_CORNERS && edges == SOLVED_EDGES;
+    }
+
+    /** Corner piece codes, 5 bits per piece. */
+    public long corners() {
+        return corners;
+    }
+
+    /** Edge piece codes, 5 bits per piece. */
+    public long edges() {
+        return edges;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PackedCube other && corners == other.corners && edges == other.edges;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(corners * 31 + edges);
+    }
+}
@@ -0,0 +1,65 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks PackedCube against Cubie: random move sequences and products must give
+ * the same states, the conversions must round-trip, and equals and isSolved must
+ * agree with the pieces.
+ *
+ * usage: java com.aaf1007.rubikscube.PackedCubeCheck [random cubes]
+ */
+public class PackedCubeCheck {
+
+    public static void main(String[] args) {
+        int cubes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        check(new PackedCube().isSolved() && new PackedCube(new Cubie()).isSolved(), "solved cube isn't solved");
+        for (int move = 0; move < Tables.N_MOVES; move++) {
+            PackedCube packed = new PackedCube();
+            packed.applyMove(move);
+            check(!packed.isSolved(), "move " + move + " leaves the cube solved");
+        }
+
+        Random random = new Random(1);
+        for (int i = 0; i < cubes; i++) {
+            Cubie cube = new Cubie();
+            PackedCube packed = new PackedCube();
+            for (int m = 0; m < 25; m++) {
+                int move = random.nextInt(Tables.N_MOVES);
+                cube.applyMove(move);
+                packed.applyMove(move);
+            }
+            check(same(packed.toCubie(), cube), "moves differ from Cubie.applyMove");
+            check(same(new PackedCube(cube).toCubie(), cube), "conversion from Cubie doesn't round-trip");
+            check(packed.equals(new PackedCube(cube)) && packed.hashCode() == new PackedCube(cube).hashCode(),
+                "equal states aren't equal");
+            check(packed.isSolved() == cube.isSolved(), "isSolved differs from Cubie");
+
+            Cubie other = new Cubie();
+            for (int m = 0; m < 20; m++) other.applyMove(random.nextInt(Tables.N_MOVES));
+            Cubie product = new Cubie(cube);
+            product.multiply(other);
+            PackedCube packedProduct = new PackedCube(packed);
+            packedProduct.multiply(new PackedCube(other));
+            check(same(packedProduct.toCubie(), product), "multiply differs from Cubie.multiply");
+
+            PackedCube inverse = new PackedCube(packed);
+            inverse.multiply(new PackedCube(cube.inverse()));
+            check(inverse.isSolved(), "cube times its inverse isn't solved");
+        }
+        System.out.println("PackedCube: all checks passed");
+    }
+
+    private static boolean same(Cubie a, Cubie b) {
+        return Arrays.equals(a.cornerPerm, b.cornerPerm)
+            && Arrays.equals(a.cornerOrient, b.cornerOrient)
+            && Arrays.equals(a.edgePerm, b.edgePerm)
+            && Arrays.equals(a.edgeOrient, b.edgeOrient);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
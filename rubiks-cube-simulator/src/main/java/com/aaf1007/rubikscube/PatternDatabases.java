@@ -0,0 +1,247 @@
+package com.aaf1007.rubikscube;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.file.Path;
+
+/**
+ * Pattern databases for the optimal solver (see OptimalSolver), as in Korf's
+ * "Finding Optimal Solutions to Rubik's Cube Using Pattern Databases".
+ *
+ * Each database stores, for every state of a subset of the pieces, the number of
+ * moves needed to solve just those pieces. Solving the whole cube takes at least
+ * as many moves, so the maximum of the three is an admissible IDA* heuristic:
+ * - corners:   all 8 corners, position and orientation (8! * 3^7 = 88,179,840 states)
+ * - edgesLow:  edges UR, UF, UL, UB, DR, DF (12!/6! * 2^6 = 42,577,920 states)
+ * - edgesHigh: edges DL, DB, FR, FL, BL, BR (same size)
+ * The tables are nibble-packed like the two-phase pruning tables (~86 MB in total),
+ * built by PruningTableBuilder the first time they're needed and then cached.
+ * They're read straight from the memory-mapped cache file, or from heap arrays if
+ * the cache is disabled.
+ *
+ * Unlike the two-phase coordinates, the search tracks pieces rather than positions:
+ * piece i is encoded as position * 3 + orientation for corners and
+ * position * 2 + orientation for edges (as in PackedCube), and a move maps each
+ * piece code on its own through CORNER_MOVE / EDGE_MOVE.
+ */
+final class PatternDatabases {
+
+    static final int N_CORNER_PERM = 40320;   // 8! corner arrangements
+    static final int N_TWIST = 2187;          // 3^7 corner orientations
+    static final int N_EDGE_POS = 665280;     // 12!/6! placements of 6 edges
+    static final int N_EDGE_FLIP = 64;        // 2^6 orientations of 6 edges
+    static final int N_CORNERS = N_CORNER_PERM * N_TWIST;
+    static final int N_EDGES = N_EDGE_POS * N_EDGE_FLIP;
+
+    // Piece moves: [move * 24 + pieceCode] -> piece code after the move
+    static final byte[] CORNER_MOVE = PackedCube.CORNER_MOVE;
+    static final byte[] EDGE_MOVE = PackedCube.EDGE_MOVE;
+
+    // Unranking tables for the BFS, so an index transition neither allocates nor
+    // scans for unused positions: CORNER_POSITIONS[rank] = position of corner c in
+    // bits 3c..3c+2, EDGE_POSITIONS[rank] = position of edge e of a set (counted
+    // from the set's first position) in bits 4e..4e+3, CORNER_TWISTS[twist] =
+    // orientation of corner c (all 8) in bits 2c..2c+1
+    private static final int[] CORNER_POSITIONS = positions(8, N_CORNER_PERM, 3);
+    private static final int[] EDGE_POSITIONS = positions(6, N_EDGE_POS, 4);
+    private static final char[] CORNER_TWISTS = new char[N_TWIST];
+
+    static {
+        for (int twist = 0; twist < N_TWIST; twist++) {
+            int rest = twist;
+            int twistSum = 0;
+            for (int c = 6; c >= 0; c--) {
+                CORNER_TWISTS[twist] |= (char) (rest % 3 << (2 * c));
+                twistSum += rest % 3;
+                rest /= 3;
+            }
+            CORNER_TWISTS[twist] |= (char) ((3 - twistSum % 3) % 3 << 14);
+        }
+    }
+
+    private MemorySegment corners, edgesLow, edgesHigh;
+
+    private static PatternDatabases instance;
+
+    private PatternDatabases() {}
+
+    /**
+     * The databases, loaded from the cache file or built (takes minutes) on first use.
+     * Blocks other callers while loading.
+     */
+    static synchronized PatternDatabases get() {
+        if (instance == null) {
+            PatternDatabases databases = new PatternDatabases();
+            databases.load();
+            instance = databases;
+        }
+        return instance;
+    }
+
+    private void load() {
+        long[] lengths = {N_CORNERS / 2, N_EDGES / 2, N_EDGES / 2};
+        Path cacheFile = TableCache.path("optimal-pdb");
+        MemorySegment[] mapped = TableCache.map(cacheFile, lengths);
+        if (mapped == null) {
+            byte[][] tables = build();
+            TableCache.save(cacheFile, new short[0][][], tables);
+
+            // Map the file just written so the heap copies can be collected
+            mapped = TableCache.map(cacheFile, lengths);
+            if (mapped == null) {
+                mapped = new MemorySegment[tables.length];
+                for (int t = 0; t < tables.length; t++) mapped[t] = MemorySegment.ofArray(tables[t]);
+            }
+        }
+        corners = mapped[0];
+        edgesLow = mapped[1];
+        edgesHigh = mapped[2];
+    }
+
+    private static byte[][] build() {
+        byte[] corners = new byte[N_CORNERS / 2];
+        byte[] edgesLow = new byte[N_EDGES / 2];
+        byte[] edgesHigh = new byte[N_EDGES / 2];
+        PruningTableBuilder.build("cornerPdb", corners, N_CORNERS, PruningTableBuilder.ALL_MOVES,
+            new CornerIndexMove(CORNER_MOVE, CORNER_POSITIONS, CORNER_TWISTS));
+        PruningTableBuilder.build("edgeLowPdb", edgesLow, N_EDGES, PruningTableBuilder.ALL_MOVES,
+            new EdgeIndexMove(EDGE_MOVE, EDGE_POSITIONS, 0));
+        PruningTableBuilder.build("edgeHighPdb", edgesHigh, N_EDGES, PruningTableBuilder.ALL_MOVES,
+            new EdgeIndexMove(EDGE_MOVE, EDGE_POSITIONS, 6));
+        return new byte[][] {corners, edgesLow, edgesHigh};
+    }
+
+    /** Moves needed to solve the corners in the given piece codes (at least). */
+    int cornerDistance(int[] cornerCodes, int offset) {
+        return Tables.getPruning(corners, cornerIndex(cornerCodes, offset));
+    }
+
+    /** Moves needed to solve edges 0-5 or 6-11 (first = 0 or 6) in the given piece codes. */
+    int edgeDistance(int[] edgeCodes, int offset, int first) {
+        return Tables.getPruning(first == 0 ? edgesLow : edgesHigh, edgeIndex(edgeCodes, offset, first));
+    }
+
+    /**
+     * Corner database index: rank of the 8 corner positions (Lehmer code) * 3^7
+     * + orientations of corners 0-6 in base 3. The solved corners have index 0.
+     */
+    static int cornerIndex(int[] codes, int offset) {
+        int perm = 0;
+        int twist = 0;
+        int used = 0;
+        for (int c = 0; c < 8; c++) {
+            int pos = codes[offset + c] / 3;
+            perm = perm * (8 - c) + pos - Integer.bitCount(used & ((1 << pos) - 1));
+            used |= 1 << pos;
+        }
+        for (int c = 0; c < 7; c++) {
+            twist = twist * 3 + codes[offset + c] % 3;
+        }
+        return perm * N_TWIST + twist;
+    }
+
+    /**
+     * Edge database index for edges first..first+5: rank of their positions
+     * (partial Lehmer code) * 2^6 + their orientations as bits. Positions are
+     * counted from position 'first', so the solved edges have index 0 for both sets.
+     */
+    static int edgeIndex(int[] codes, int offset, int first) {
+        int pos = 0;
+        int flip = 0;
+        int used = 0;
+        for (int e = 0; e < 6; e++) {
+            int code = codes[offset + first + e];
+            int p = ((code >> 1) - first + 12) % 12;
+            pos = pos * (12 - e) + p - Integer.bitCount(used & ((1 << p) - 1));
+            used |= 1 << p;
+            flip = (flip << 1) | (code & 1);
+        }
+        return pos * N_EDGE_FLIP + flip;
+    }
+
+    /**
+     * Unranking table of the partial Lehmer codes used by cornerIndex and edgeIndex:
+     * for every rank, the positions (out of 8 or 12) of the first 'pieces' pieces,
+     * 'bits' bits each.
+     */
+    private static int[] positions(int pieces, int ranks, int bits) {
+        int slots = pieces == 8 ? 8 : 12;
+        int[] positions = new int[ranks];
+        for (int rank = 0; rank < ranks; rank++) {
+            // Lehmer digits, most significant (radix 'slots') first
+            int rest = rank;
+            int[] digits = new int[pieces];
+            for (int i = pieces - 1; i >= 0; i--) {
+                digits[i] = rest % (slots - i);
+                rest /= slots - i;
+            }
+            int used = 0;
+            for (int i = 0; i < pieces; i++) {
+                int p = unusedPosition(digits[i], used);
+                used |= 1 << p;
+                positions[rank] |= p << (bits * i);
+            }
+        }
+        return positions;
+    }
+
+    /** Position with the given rank among the positions not yet in 'used'. */
+    private static int unusedPosition(int rank, int used) {
+        int p = 0;
+        while (true) {
+            if ((used & (1 << p)) == 0 && rank-- == 0) return p;
+            p++;
+        }
+    }
+
+    // Index transitions for the BFS. Like the records in Tables they carry their
+    // tables instead of reading PatternDatabases' statics from the builder's workers.
+    // Each decodes the index through the unranking tables, moves every piece and
+    // ranks the result the same way as cornerIndex / edgeIndex, without arrays.
+
+    /** Corner database index transition: decode the 8 corners, move them, encode. */
+    private record CornerIndexMove(byte[] cornerMove, int[] positions, char[] twists)
+            implements PruningTableBuilder.IndexMove {
+        @Override
+        public int apply(int index, int move) {
+            int corners = positions[index / N_TWIST];
+            int orients = twists[index % N_TWIST];
+
+            int perm = 0;
+            int twist = 0;
+            int used = 0;
+            for (int c = 0; c < 8; c++) {
+                int code = ((corners >>> (3 * c)) & 7) * 3 + ((orients >>> (2 * c)) & 3);
+                code = cornerMove[move * 24 + code];
+                int pos = code / 3;
+                perm = perm * (8 - c) + pos - Integer.bitCount(used & ((1 << pos) - 1));
+                used |= 1 << pos;
+                if (c < 7) twist = twist * 3 + code % 3;
+            }
+            return perm * N_TWIST + twist;
+        }
+    }
+
+    /** Edge database index transition for edges first..first+5. */
+    private record EdgeIndexMove(byte[] edgeMove, int[] positions, int first) implements PruningTableBuilder.IndexMove {
+        @Override
+        public int apply(int index, int move) {
+            int edges = positions[index / N_EDGE_FLIP];
+            int flips = index % N_EDGE_FLIP;
+
+            int pos = 0;
+            int flip = 0;
+            int used = 0;
+            for (int e = 0; e < 6; e++) {
+                int p = ((edges >>> (4 * e)) & 15) + first;
+                if (p >= 12) p -= 12;
+                int code = edgeMove[move * 24 + p * 2 + ((flips >> (5 - e)) & 1)];
+                int q = (code >> 1) - first;
+                if (q < 0) q += 12;
+                pos = pos * (12 - e) + q - Integer.bitCount(used & ((1 << q) - 1));
+                used |= 1 << q;
+                flip = (flip << 1) | (code & 1);
+            }
+            return pos * N_EDGE_FLIP + flip;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of phase 2 search results, keyed by the G1 position phase 1 ended in.
+ *
+ * Many phase 1 sequences end in the same G1 position, and the phase 2 search from
+ * there doesn't depend on how it was reached. Each entry holds either the phase 2
+ * solution found from the position, or a lower bound on its length proven by a
+ * search that failed, so a repeated position is answered without searching (or
+ * the search starts at the bound instead of at depth 1). An entry is valid for
+ * any cube, so a cache can also be kept across solves and shared between threads.
+ *
+ * The cache is a fixed-size table with one entry per slot; a new entry replaces
+ * whatever was in its slot. Slots are read and written without locking: every slot
+ * stores key ^ value next to the value, so a slot torn by concurrent writers fails
+ * the key check and reads as a miss.
+ *
+ * Every SolveContext has its own cache of -Drubikscube.phase2Cache=N entries
+ * (default 16384, 0 disables it), emptied at the start of every solve, so by
+ * default a cache only serves one solve. SolveContext.setPhase2Cache sets one
+ * that is kept across solves and may be shared between contexts instead.
+ */
+public final class Phase2Cache {
+
+    /** Entries of the cache every SolveContext starts with, 0 for none. */
+    static final int DEFAULT_CAPACITY = Integer.getInteger("rubikscube.phase2Cache", 1 << 14);
+
+    // Value layout: bits 0-49 the moves (5 bits each, face * 3 + turnCount - 1),
+    // bits 50-53 the length, bit 54 set if it's a solution rather than a lower bound
+    private static final int LENGTH_SHIFT = 50;
+    private static final long SOLUTION = 1L << 54;
+
+    private final long[] checks;  // key ^ value
+    private final long[] values;
+    private final int shift;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /** Cache with room for at least the given number of entries (rounded up to a power of 2). */
+    public Phase2Cache(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1: " + capacity);
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        checks = new long[size];
+        values = new long[size];
+        shift = 64 - Integer.numberOfTrailingZeros(size);
+        clear();
+    }
+
+    /** Number of entries the cache holds at most. */
+    public int capacity() {
+        return values.length;
+    }
+
+    /** Phase 2 searches answered from the cache. */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /** Phase 2 searches the cache couldn't answer. */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /** Remove all entries and reset the counters. Not safe while the cache is in use. */
+    public void clear() {
+        // A value of 0 with a check of -1 matches no key (keys are non-negative)
+        Arrays.fill(checks, -1);
+        Arrays.fill(values, 0);
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * Key of a G1 position: its phase 2 coordinates in mixed radix, below
+     * 20160 * 20160 * 24 * 2 (about 1.95e10), so it takes 35 bits.
+     */
+    static long key(int cornerPerm, int udEdgePerm, int slicePerm, int parity) {
+        return (((long) cornerPerm * Tables.N_UD_EDGE_PERM + udEdgePerm) * Tables.N_SLICE2 + slicePerm) * 2 + parity;
+    }
+
+    /** The value stored for the key, or -1 if there is none. */
+    long get(long key) {
+        int slot = slot(key);
+        long value = values[slot];
+        return (checks[slot] ^ value) == key ? value : -1;
+    }
+
+    void put(long key, long value) {
+        int slot = slot(key);
+        values[slot] = value;
+        checks[slot] = key ^ value;
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+    }
+
+    /** Value for the phase 2 solution in ctx at depths [depthPhase1, depthPhase1 + length). */
+    static long solution(SolveContext ctx, int depthPhase1, int length) {
+        long value = SOLUTION | ((long) length << LENGTH_SHIFT);
+        for (int i = 0; i < length; i++) {
+            long move = 3 * ctx.faceIndex[depthPhase1 + i] + ctx.turnCount[depthPhase1 + i] - 1;
+            value |= move << (5 * i);
+        }
+        return value;
+    }
+
+    /** Value recording that the phase 2 solution needs at least minLength moves. */
+    static long lowerBound(int minLength) {
+        return (long) minLength << LENGTH_SHIFT;
+    }
+
+    static boolean isSolution(long value) {
+        return (value & SOLUTION) != 0;
+    }
+
+    /** Length of the solution, or the lower bound. */
+    static int length(long value) {
+        return (int) (value >>> LENGTH_SHIFT) & 0xF;
+    }
+
+    /** Write the moves of a solution value into ctx, starting at depthPhase1. */
+    static void copyMoves(long value, SolveContext ctx, int depthPhase1) {
+        int length = length(value);
+        for (int i = 0; i < length; i++) {
+            int move = (int) (value >>> (5 * i)) & 0x1F;
+            ctx.faceIndex[depthPhase1 + i] = move / 3;
+            ctx.turnCount[depthPhase1 + i] = move % 3 + 1;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.aaf1007.rubikscube;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds nibble-packed pruning tables by breadth-first search from the solved state.
+ *
+ * Algorithm: Start with solved state (distance 0), then repeatedly fill depth d+1
+ * from the states at depth d until all states are filled. Each level is searched
+ * in one of two directions:
+ * - Forward: scan for states at depth d and mark their unvisited neighbors as d+1.
+ * - Backward: scan only unvisited states and mark a state as d+1 as soon as one of
+ *   its neighbors is at depth d.
+ * Early levels have a small frontier and search forward. Once the frontier outgrows
+ * the number of unvisited states, forward search wastes most of its work on
+ * neighbors that are already filled, so the remaining levels search backward.
+ * Backward search is valid because every move set used here is closed under inverses.
+ *
+ * Each depth level either scans the whole table on the calling thread, or is
+ * split across a ForkJoinPool when more than one table thread is configured.
+ * All modes produce byte-identical tables: the set of states first reached at
+ * depth d+1 doesn't depend on the search direction or the order of expansion.
+ *
+ * Tables builds its tables lazily, when a group is first loaded: on the background
+ * loader thread started by Tables.loadInBackground(), or on whichever thread calls
+ * Tables.await() first, so Tables is fully initialized by then. Nothing here -
+ * including the IndexMove implementations passed in - touches its static state
+ * all the same: if a table were ever built from a static initializer, a worker
+ * thread doing so would block on the class initialization lock held by the
+ * thread waiting for it.
+ */
+final class PruningTableBuilder {
+
+    /**
+     * Maps a combined pruning-table index and a move to the index the move leads to.
+     */
+    @FunctionalInterface
+    interface IndexMove {
+        int apply(int index, int move);
+    }
+
+    /**
+     * For symmetry-reduced tables: a state whose class representative is symmetric
+     * under some symmetries is encoded by several indices, one per symmetric
+     * variant of its remaining coordinate. These must all get the same distance,
+     * so forward search fills them together.
+     */
+    interface IndexSymmetries {
+        /** Bit mask of the symmetries (other than bit 0) that map the index's class onto itself. */
+        int selfSymmetries(int index);
+
+        /** The index encoding the same state, seen through self-symmetry sym. */
+        int apply(int index, int sym);
+    }
+
+    // Move mask that allows all 18 moves
+    static final int ALL_MOVES = (1 << 18) - 1;
+
+    // Number of threads used to build the pruning tables (-Drubikscube.tableThreads=N)
+    // 1 selects the original single-threaded BFS
+    private static final int TABLE_THREADS =
+        Math.max(1, Integer.getInteger("rubikscube.tableThreads", Runtime.getRuntime().availableProcessors()));
+
+    // Ranges at most this long are scanned by a single fork-join task
+    private static final int PARALLEL_CHUNK = 1 << 14;
+
+    // Switch to backward search once the frontier is larger than
+    // BACKWARD_RATIO * (number of unvisited entries) (-Drubikscube.backwardRatio=R)
+    private static final double BACKWARD_RATIO = Double.parseDouble(System.getProperty("rubikscube.backwardRatio", "1.0"));
+
+    // Print per-depth statistics while building (-Drubikscube.tableTiming=true)
+    private static final boolean TABLE_TIMING = Boolean.getBoolean("rubikscube.tableTiming");
+
+    // 0x0F marks unvisited entries, so 14 is the deepest storable distance.
+    // Entries still unvisited after it read as 15, which is still a valid lower
+    // bound, so large tables can stop there.
+    static final int MAX_DEPTH = 14;
+
+    // Byte-array view used for atomic nibble updates during the parallel build
+    private static final VarHandle PRUNING_BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private PruningTableBuilder() {}
+
+    /**
+     * Fills one pruning table by BFS from the solved state (index 0).
+     *
+     * @param name  Table name, used for the per-depth timing output
+     * @param table Nibble-packed table to fill
+     * @param size  Number of entries (states) in the table
+     * @param moves Bit mask of the moves the BFS may use (bit m = move m)
+     * @param move  Transition function for combined indices
+     */
+    static void build(String name, byte[] table, int size, int moves, IndexMove move) {
+        build(name, table, size, moves, move, null);
+    }
+
+    /**
+     * Fills one symmetry-reduced pruning table by BFS from the solved state (index 0).
+     * Same as build(name, table, size, moves, move), but every index found by forward
+     * search also fills its symmetric variants (symmetries may be null).
+     */
+    static void build(String name, byte[] table, int size, int moves, IndexMove move, IndexSymmetries symmetries) {
+        build(name, table, size, moves, move, symmetries, BACKWARD_RATIO, TABLE_THREADS);
+    }
+
+    /**
+     * Same as build(name, table, size, moves, move, symmetries), with the backward
+     * ratio and thread count given instead of read from the system properties, so
+     * the modes can be compared in one JVM (see PruningTableBuilderCheck).
+     * A backward ratio of Double.POSITIVE_INFINITY searches every level forward.
+     */
+    static void build(String name, byte[] table, int size, int moves, IndexMove move, IndexSymmetries symmetries,
+                      double backwardRatio, int threads) {
+        // Initialize all entries to 0x0F (15) meaning "unvisited"
+        Arrays.fill(table, (byte) -1);
+        setNibble(table, 0, 0);  // Solved state at distance 0
+
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        try {
+            int depth = 0;
+            int done = 1;
+            int frontier = 1;
+            while (done < size && depth < MAX_DEPTH && frontier > 0) {
+                boolean backward = frontier > backwardRatio * (size - done);
+                long start = System.nanoTime();
+                if (pool != null) {
+                    frontier = pool.invoke(new ExpandLevel(table, 0, size, depth, moves, backward, move, symmetries));
+                } else {
+                    frontier = expandLevel(table, 0, size, depth, moves, backward, move, symmetries);
+                }
+                done += frontier;
+                if (TABLE_TIMING) {
+                    System.out.printf("%s depth %2d: %-8s %,12d new %,12d total %8.1f ms%n", name, depth + 1,
+                        backward ? "backward" : "forward", frontier, done, (System.nanoTime() - start) / 1e6);
+                }
+                depth++;
+            }
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    /**
+     * Fills depth + 1 for every state within [from, to), searching forward from
+     * states at depth or backward from unvisited states. Returns the number of
+     * newly marked entries.
+     */
+    private static int expandLevel(byte[] table, int from, int to, int depth, int moves, boolean backward,
+                                   IndexMove move, IndexSymmetries symmetries) {
+        int found = 0;
+        for (int i = from; i < to; i++) {
+            if (backward) {
+                if (getNibble(table, i) == 0x0F) {
+                    // Unvisited state - it's at depth + 1 if any neighbor is at depth
+                    for (int m = 0; m < 18; m++) {
+                        if ((moves & (1 << m)) == 0) continue;
+
+                        if (getNibble(table, move.apply(i, m)) == depth) {
+                            setNibble(table, i, depth + 1);
+                            found++;
+                            break;
+                        }
+                    }
+                }
+            } else if (getNibble(table, i) == depth) {
+                // This state is at current depth - try all allowed moves
+                for (int m = 0; m < 18; m++) {
+                    if ((moves & (1 << m)) == 0) continue;
+
+                    int idx = move.apply(i, m);
+                    if (getNibble(table, idx) == 0x0F) {  // Unvisited
+                        setNibble(table, idx, depth + 1);
+                        found++;
+                        if (symmetries != null) found += fillSymmetric(table, idx, depth + 1, symmetries, false);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Parallel version of expandLevel. Entries may share a byte with an entry that
+     * another task is writing at the same time, so they are claimed with claimNibble
+     * (a CAS on the containing byte) instead of a plain read-modify-write.
+     */
+    @SuppressWarnings("serial")  // Fork-join tasks are never serialized
+    private static final class ExpandLevel extends RecursiveTask<Integer> {
+        private final byte[] table;
+        private final int from, to, depth, moves;
+        private final boolean backward;
+        private final IndexMove move;
+        private final IndexSymmetries symmetries;
+
+        ExpandLevel(byte[] table, int from, int to, int depth, int moves, boolean backward,
+                    IndexMove move, IndexSymmetries symmetries) {
+            this.table = table;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+            this.moves = moves;
+            this.backward = backward;
+            this.move = move;
+            this.symmetries = symmetries;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from > PARALLEL_CHUNK) {
+                int mid = (from + to) >>> 1;
+                ExpandLevel left = new ExpandLevel(table, from, mid, depth, moves, backward, move, symmetries);
+                left.fork();
+                int right = new ExpandLevel(table, mid, to, depth, moves, backward, move, symmetries).compute();
+                return left.join() + right;
+            }
+
+            // Entries at 'depth' were all written by the previous level, so plain
+            // reads are safe even while other tasks update neighboring nibbles
+            int found = 0;
+            for (int i = from; i < to; i++) {
+                if (backward) {
+                    if (getNibble(table, i) == 0x0F) {
+                        for (int m = 0; m < 18; m++) {
+                            if ((moves & (1 << m)) == 0) continue;
+
+                            if (getNibble(table, move.apply(i, m)) == depth) {
+                                if (claimNibble(table, i, depth + 1)) found++;
+                                break;
+                            }
+                        }
+                    }
+                } else if (getNibble(table, i) == depth) {
+                    for (int m = 0; m < 18; m++) {
+                        if ((moves & (1 << m)) == 0) continue;
+
+                        int idx = move.apply(i, m);
+                        if (getNibble(table, idx) == 0x0F && claimNibble(table, idx, depth + 1)) {
+                            found++;
+                            if (symmetries != null) found += fillSymmetric(table, idx, depth + 1, symmetries, true);
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Marks the unvisited symmetric variants of a newly found index with the same
+     * depth. Backward search doesn't need this: the variants of an unvisited state
+     * have symmetric neighbors, so they are found at the same level on their own.
+     *
+     * @return the number of newly marked entries
+     */
+    private static int fillSymmetric(byte[] table, int index, int depth, IndexSymmetries symmetries, boolean atomic) {
+        int mask = symmetries.selfSymmetries(index);
+        int found = 0;
+        for (int sym = 1; mask >>> sym != 0; sym++) {
+            if ((mask & (1 << sym)) == 0) continue;
+
+            int idx = symmetries.apply(index, sym);
+            if (getNibble(table, idx) != 0x0F) continue;
+            if (atomic) {
+                if (claimNibble(table, idx, depth)) found++;
+            } else {
+                setNibble(table, idx, depth);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // Same half-byte packing as Tables.getPruning/setPruning: even indices use
+    // the lower 4 bits of a byte, odd indices the upper 4 bits
+
+    private static int getNibble(byte[] table, int index) {
+        return (table[index >> 1] >>> ((index & 1) << 2)) & 0x0F;
+    }
+
+    private static void setNibble(byte[] table, int index, int value) {
+        int shift = (index & 1) << 2;
+        table[index >> 1] = (byte) ((table[index >> 1] & ~(0x0F << shift)) | ((value & 0x0F) << shift));
+    }
+
+    /**
+     * Atomically store a value at an unvisited (0x0F) index.
+     * Retries the CAS if the other nibble of the same byte changes concurrently.
+     *
+     * @return true if this call stored the value, false if the entry was already set
+     */
+    private static boolean claimNibble(byte[] table, int index, int value) {
+        int shift = (index & 1) << 2;
+        while (true) {
+            byte old = (byte) PRUNING_BYTES.getVolatile(table, index >> 1);
+            if (((old >>> shift) & 0x0F) != 0x0F) return false;
+
+            byte updated = (byte) ((old & ~(0x0F << shift)) | ((value & 0x0F) << shift));
+            if (PRUNING_BYTES.compareAndSet(table, index >> 1, old, updated)) return true;
+        }
+    }
+}
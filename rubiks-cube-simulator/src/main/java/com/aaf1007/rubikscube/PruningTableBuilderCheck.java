@@ -0,0 +1,114 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks PruningTableBuilder: the slice x twist and slice x corner tables built
+ * forward only, with the switch to backward search at several ratios, and on one
+ * or several threads must be byte-identical. The slice tables Tables loaded must
+ * match them: in the nibble encoding byte for byte, in the mod3 encoding as the
+ * distances mod 3, with the exact distances recovered from the solved state and
+ * from a parent one move away.
+ *
+ * usage: java [-Drubikscube.pruning=mod3] com.aaf1007.rubikscube.PruningTableBuilderCheck [random indices]
+ * Run it once per encoding to check both.
+ */
+public class PruningTableBuilderCheck {
+
+    // Moves of phase 2: U, U2, U', R2, F2, D, D2, D', L2, B2
+    private static final int PHASE2_MOVES = 1 << 0 | 1 << 1 | 1 << 2 | 1 << 4 | 1 << 7
+        | 1 << 9 | 1 << 10 | 1 << 11 | 1 << 13 | 1 << 16;
+
+    // {backward ratio, threads} of each build compared with the forward-only one
+    private static final double[][] MODES = {
+        {Double.POSITIVE_INFINITY, 4}, {1.0, 1}, {1.0, 4}, {0.01, 1}, {0.01, 4}, {100, 4}
+    };
+
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        Tables.await(Tables.Group.PHASE2);
+        MoveTableBackend moves = Tables.moves;
+
+        // Index transitions as in Tables: N_SLICE1 * twist + slice position, and
+        // (N_SLICE2 * corner permutation + slice permutation) * 2 + parity
+        PruningTableBuilder.IndexMove sliceTwist = (i, m) ->
+            Tables.N_SLICE1 * moves.twist(i / Tables.N_SLICE1, m) + moves.slice(i % Tables.N_SLICE1 * 24, m) / 24;
+        PruningTableBuilder.IndexMove sliceCorner = (i, m) ->
+            (Tables.N_SLICE2 * moves.cornerPerm(i / 2 / Tables.N_SLICE2, m) + moves.slice(i / 2 % Tables.N_SLICE2, m)) * 2
+                + Tables.parityMove[i % 2][m];
+
+        int sliceTwistSize = Tables.N_SLICE1 * Tables.N_TWIST;
+        int sliceCornerSize = Tables.N_SLICE2 * Tables.N_CORNER_PERM * Tables.N_PARITY;
+        byte[] sliceTwistPrune = checkModes("sliceTwistPrune", sliceTwistSize, PruningTableBuilder.ALL_MOVES, sliceTwist);
+        byte[] sliceCornerPrune = checkModes("sliceCornerPrune", sliceCornerSize, PHASE2_MOVES, sliceCorner);
+
+        Random random = new Random(13);
+        checkLoaded("sliceTwistPrune", Tables.sliceTwistPrune, sliceTwistPrune, sliceTwistSize,
+            PruningTableBuilder.ALL_MOVES, sliceTwist, samples, random);
+        checkLoaded("sliceCornerPrune", Tables.sliceCornerPrune, sliceCornerPrune, sliceCornerSize,
+            PHASE2_MOVES, sliceCorner, samples, random);
+
+        // Exact distances of start positions, walked down to the solved state with mod3
+        for (int s = 0; s < samples; s++) {
+            int twist = random.nextInt(Tables.N_TWIST);
+            int slicePos = random.nextInt(Tables.N_SLICE1);
+            check(Tables.getSliceTwistPruning(twist, slicePos)
+                    == Tables.getPruning(sliceTwistPrune, Tables.N_SLICE1 * twist + slicePos),
+                "exact slice x twist distance of " + twist + ", " + slicePos + " differs");
+
+            int corner = random.nextInt(Tables.N_CORNER_PERM);
+            int slicePerm = random.nextInt(Tables.N_SLICE2);
+            int parity = random.nextInt(Tables.N_PARITY);
+            check(Tables.getSliceCornerPruning(corner, slicePerm, parity)
+                    == Tables.getPruning(sliceCornerPrune, (Tables.N_SLICE2 * corner + slicePerm) * 2 + parity),
+                "exact slice x corner distance of " + corner + ", " + slicePerm + ", " + parity + " differs");
+        }
+        System.out.println("PruningTableBuilder: all checks passed (" + (Tables.PRUNING_MOD3 ? "mod3" : "nibble") + ")");
+    }
+
+    /** Build a table in every mode and check that they're identical; returns the forward-only build. */
+    private static byte[] checkModes(String name, int size, int moveMask, PruningTableBuilder.IndexMove move) {
+        byte[] forward = new byte[(size + 1) / 2];
+        PruningTableBuilder.build(name, forward, size, moveMask, move, null, Double.POSITIVE_INFINITY, 1);
+        for (double[] mode : MODES) {
+            byte[] table = new byte[forward.length];
+            PruningTableBuilder.build(name, table, size, moveMask, move, null, mode[0], (int) mode[1]);
+            check(Arrays.equals(table, forward), name + " with backward ratio " + mode[0] + " on " + (int) mode[1]
+                + " threads differs from the forward-only build");
+        }
+        return forward;
+    }
+
+    /**
+     * Check a table Tables loaded against the nibble table built here: the same
+     * bytes in the nibble encoding, the same distances mod 3 in the mod3 encoding,
+     * and in both the distance recovered from a parent one move away.
+     */
+    private static void checkLoaded(String name, byte[] loaded, byte[] nibbles, int size, int moveMask,
+                                    PruningTableBuilder.IndexMove move, int samples, Random random) {
+        if (Tables.PRUNING_MOD3) {
+            check(loaded.length == (size + 3) / 4, name + " isn't 2 bits per entry");
+            for (int i = 0; i < size; i++) {
+                check(Tables.getPruningMod3(loaded, i) == Tables.getPruning(nibbles, i) % 3,
+                    name + " mod 3 value at " + i + " differs from the nibble table");
+            }
+        } else {
+            check(Arrays.equals(loaded, nibbles), name + " differs from the table built here");
+        }
+
+        for (int s = 0; s < samples; s++) {
+            int index = random.nextInt(size);
+            int m = random.nextInt(Tables.N_MOVES);
+            if ((moveMask & (1 << m)) == 0) continue;
+
+            int next = move.apply(index, m);
+            check(Tables.getPruning(loaded, next, Tables.getPruning(nibbles, index)) == Tables.getPruning(nibbles, next),
+                name + " distance at " + next + " recovered from its parent " + index + " differs");
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
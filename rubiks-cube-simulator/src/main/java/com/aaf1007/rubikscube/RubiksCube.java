@@ -11,6 +11,10 @@ import java.io.IOException;
  * It parses the file and converts the sticker colors into a piece-level
  * representation (Cubie) that solver can use.
  *
+ * Moves can also be applied to the stickers directly: every move is a precomputed
+ * permutation of the 54 stickers, and a move sequence can be composed into a
+ * single permutation. fromCubie() goes the other way, from pieces to stickers.
+ *
  * The cube is unfolded in the file as:
  *       OOO          (Up face)
  *       OOO
@@ -24,6 +28,10 @@ import java.io.IOException;
  *
  * Face indices (0-5): U=0, R=1, F=2, D=3, L=4, B=5
  * Sticker indices per face (0-8): reading order top-left to bottom-right
+ *
+ * A RubiksCube is not thread-safe: moves update the stickers in place, through a
+ * scratch array of the cube's own, so one cube must not be moved by two threads
+ * at once. Separate cubes can be used from separate threads.
  */
 public class RubiksCube {
 
@@ -41,6 +49,10 @@ public class RubiksCube {
     // Index = face*9 + position, where position is 0-8 reading left-to-right, top-to-bottom
     public int[] stickers = new int[54];
 
+    // Scratch copy of the stickers for applyPermutation(), which makes moves unsafe
+    // to apply to one cube from several threads
+    private final int[] before = new int[54];
+
     // Corner facelet positions: which 3 sticker indices make up each corner
     // Format: [corner_index][0,1,2] where:
     //   [0] = the U/D facelet (used to determine orientation)
@@ -88,6 +100,21 @@ public class RubiksCube {
         {F, R}, {F, L}, {B, L}, {B, R}   // Middle layer (E-slice) edges
     };
 
+    // Color characters of the input files, by face index
+    static final char[] FACE_CHARS = {'O', 'B', 'W', 'R', 'G', 'Y'};
+
+    // Facelet permutation of each move 0-17: after the move, sticker i holds the
+    // color sticker MOVE_FACELETS[move][i] had before
+    private static final byte[][] MOVE_FACELETS = new byte[18][];
+
+    static {
+        for (int m = 0; m < 18; m++) {
+            Cubie move = new Cubie();
+            move.applyMove(m);
+            MOVE_FACELETS[m] = faceletPermutation(move);
+        }
+    }
+
     /**
      * Default constructor: creates a solved cube where each face has its own color.
      */
@@ -99,6 +126,11 @@ public class RubiksCube {
         }
     }
 
+    /** Copy constructor: creates an independent copy of another cube. */
+    public RubiksCube(RubiksCube other) {
+        System.arraycopy(other.stickers, 0, stickers, 0, 54);
+    }
+
     /**
      * Parse cube state from input file.
      *
@@ -178,6 +210,24 @@ public class RubiksCube {
      */
     public Cubie toCubie() {
         Cubie cubie = new Cubie();
+        toCubie(cubie);
+        return cubie;
+    }
+
+    /**
+     * Convert sticker representation to piece representation, into an existing Cubie
+     * (as toCubie(), for reading many cubes without allocating one per cube). Pieces
+     * that can't be identified are left as in a solved cube, like toCubie() does.
+     */
+    public void toCubie(Cubie cubie) {
+        for (int i = 0; i < 8; i++) {
+            cubie.cornerPerm[i] = i;
+            cubie.cornerOrient[i] = 0;
+        }
+        for (int i = 0; i < 12; i++) {
+            cubie.edgePerm[i] = i;
+            cubie.edgeOrient[i] = 0;
+        }
 
         // Process each of the 8 corner positions
         for (int pos = 0; pos < 8; pos++) {
@@ -229,7 +279,130 @@ public class RubiksCube {
                 }
             }
         }
+    }
 
-        return cubie;
+    /**
+     * Convert piece representation to sticker representation: the inverse of toCubie().
+     * Works from the facelet tables only, without searching, so it's cheap enough to
+     * call for every frame of a rendering or every line of output.
+     */
+    public static RubiksCube fromCubie(Cubie cubie) {
+        RubiksCube cube = new RubiksCube();  // Centers are already in place
+
+        for (int pos = 0; pos < 8; pos++) {
+            int piece = cubie.cornerPerm[pos];
+            int orientation = cubie.cornerOrient[pos];
+            // The piece's n-th color (going clockwise from U/D) is twisted 'orientation' facelets on
+            for (int n = 0; n < 3; n++) {
+                cube.stickers[CORNER_FACELETS[pos][(n + orientation) % 3]] = CORNER_COLORS[piece][n];
+            }
+        }
+        for (int pos = 0; pos < 12; pos++) {
+            int piece = cubie.edgePerm[pos];
+            int orientation = cubie.edgeOrient[pos];
+            for (int n = 0; n < 2; n++) {
+                cube.stickers[EDGE_FACELETS[pos][(n + orientation) % 2]] = EDGE_COLORS[piece][n];
+            }
+        }
+        return cube;
+    }
+
+    /**
+     * Apply a move at the sticker level: one gather over the 54 stickers.
+     * Not thread-safe (see the class comment).
+     *
+     * @param move Move index 0-17, as Cubie.applyMove
+     */
+    public void applyMove(int move) {
+        applyPermutation(MOVE_FACELETS[move]);
+    }
+
+    /**
+     * Apply a facelet permutation from permutation() or compose(): afterwards
+     * sticker i holds the color sticker permutation[i] had before.
+     */
+    public void applyPermutation(byte[] permutation) {
+        System.arraycopy(stickers, 0, before, 0, 54);
+        for (int i = 0; i < 54; i++) {
+            stickers[i] = before[permutation[i]];
+        }
+    }
+
+    /**
+     * The facelet permutation of a move sequence, composed once so that applying
+     * the whole sequence to a cube costs a single applyPermutation().
+     *
+     * @param moves Move indices 0-17, applied first to last
+     */
+    public static byte[] permutation(int... moves) {
+        byte[] result = new byte[54];
+        for (int i = 0; i < 54; i++) result[i] = (byte) i;
+        for (int move : moves) result = compose(result, MOVE_FACELETS[move]);
+        return result;
+    }
+
+    /** The facelet permutation that applies 'first' and then 'second'. */
+    public static byte[] compose(byte[] first, byte[] second) {
+        byte[] result = new byte[54];
+        for (int i = 0; i < 54; i++) {
+            result[i] = first[second[i]];
+        }
+        return result;
+    }
+
+    /**
+     * Facelet permutation of a regular cube state reached from solved: where every
+     * sticker of that state comes from. Same tables as fromCubie(), with sticker
+     * positions in place of colors.
+     */
+    private static byte[] faceletPermutation(Cubie cubie) {
+        byte[] permutation = new byte[54];
+        for (int i = 0; i < 54; i++) permutation[i] = (byte) i;  // Centers stay put
+
+        for (int pos = 0; pos < 8; pos++) {
+            int from = cubie.cornerPerm[pos];
+            int orientation = cubie.cornerOrient[pos];
+            for (int n = 0; n < 3; n++) {
+                permutation[CORNER_FACELETS[pos][(n + orientation) % 3]] = (byte) CORNER_FACELETS[from][n];
+            }
+        }
+        for (int pos = 0; pos < 12; pos++) {
+            int from = cubie.edgePerm[pos];
+            int orientation = cubie.edgeOrient[pos];
+            for (int n = 0; n < 2; n++) {
+                permutation[EDGE_FACELETS[pos][(n + orientation) % 2]] = (byte) EDGE_FACELETS[from][n];
+            }
+        }
+        return permutation;
+    }
+
+    /** The cube unfolded in the input file format (9 lines, Up face indented by 3). */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder(9 * 13);
+        for (int row = 0; row < 3; row++) {
+            out.append("   ");
+            appendRow(out, U, row);
+            out.append('\n');
+        }
+        for (int row = 0; row < 3; row++) {
+            appendRow(out, L, row);
+            appendRow(out, F, row);
+            appendRow(out, R, row);
+            appendRow(out, B, row);
+            out.append('\n');
+        }
+        for (int row = 0; row < 3; row++) {
+            out.append("   ");
+            appendRow(out, D, row);
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private void appendRow(StringBuilder out, int face, int row) {
+        for (int col = 0; col < 3; col++) {
+            out.append(FACE_CHARS[stickers[face * 9 + row * 3 + col]]);
+        }
     }
 }
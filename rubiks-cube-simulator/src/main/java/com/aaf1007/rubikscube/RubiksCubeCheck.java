@@ -0,0 +1,82 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Checks the sticker moves of RubiksCube against Cubie: random move sequences
+ * applied with applyMove, or composed into one permutation with permutation()
+ * and compose(), must give the stickers of the same moves applied to a Cubie,
+ * and toCubie must read those pieces back.
+ *
+ * usage: java com.aaf1007.rubikscube.RubiksCubeCheck [random cubes]
+ */
+public class RubiksCubeCheck {
+
+    public static void main(String[] args) {
+        int cubes = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        check(same(new RubiksCube().toCubie(), new Cubie()), "solved stickers aren't a solved cube");
+        for (int move = 0; move < Tables.N_MOVES; move++) {
+            RubiksCube stickers = new RubiksCube();
+            stickers.applyMove(move);
+            Cubie cube = new Cubie();
+            cube.applyMove(move);
+            check(same(stickers.toCubie(), cube), "move " + move + " differs from Cubie.applyMove");
+
+            // Four quarter turns, or two half turns, restore the stickers
+            for (int i = move % 3 == 1 ? 1 : 3; i > 0; i--) stickers.applyMove(move);
+            check(Arrays.equals(stickers.stickers, new RubiksCube().stickers), "move " + move + " doesn't cycle");
+        }
+
+        Random random = new Random(3);
+        for (int i = 0; i < cubes; i++) {
+            int[] moves = new int[random.nextInt(30)];
+            for (int m = 0; m < moves.length; m++) moves[m] = random.nextInt(Tables.N_MOVES);
+            int split = random.nextInt(moves.length + 1);
+
+            Cubie cube = new Cubie();
+            RubiksCube stickers = new RubiksCube();
+            for (int move : moves) {
+                cube.applyMove(move);
+                stickers.applyMove(move);
+            }
+            check(same(stickers.toCubie(), cube), "applyMove differs from Cubie.applyMove");
+            check(Arrays.equals(RubiksCube.fromCubie(cube).stickers, stickers.stickers),
+                "fromCubie differs from the moved stickers");
+
+            Cubie read = new Cubie();
+            for (int m = 0; m < 5; m++) read.applyMove(random.nextInt(Tables.N_MOVES));
+            stickers.toCubie(read);
+            check(same(read, cube), "toCubie into an existing Cubie differs");
+
+            // The whole sequence as one permutation, and as two composed halves
+            RubiksCube permuted = new RubiksCube();
+            permuted.applyPermutation(RubiksCube.permutation(moves));
+            check(Arrays.equals(permuted.stickers, stickers.stickers), "permutation() differs from applyMove");
+
+            byte[] composed = RubiksCube.compose(
+                RubiksCube.permutation(Arrays.copyOfRange(moves, 0, split)),
+                RubiksCube.permutation(Arrays.copyOfRange(moves, split, moves.length)));
+            RubiksCube halves = new RubiksCube();
+            halves.applyPermutation(composed);
+            check(Arrays.equals(halves.stickers, stickers.stickers), "compose() differs from applyMove");
+
+            RubiksCube copy = new RubiksCube(stickers);
+            copy.applyMove(random.nextInt(Tables.N_MOVES));
+            check(same(stickers.toCubie(), cube), "moving a copy changes the original");
+        }
+        System.out.println("RubiksCube: all checks passed");
+    }
+
+    private static boolean same(Cubie a, Cubie b) {
+        return Arrays.equals(a.cornerPerm, b.cornerPerm)
+            && Arrays.equals(a.cornerOrient, b.cornerOrient)
+            && Arrays.equals(a.edgePerm, b.edgePerm)
+            && Arrays.equals(a.edgeOrient, b.edgeOrient);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
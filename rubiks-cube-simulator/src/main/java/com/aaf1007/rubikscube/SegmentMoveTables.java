@@ -0,0 +1,134 @@
+package com.aaf1007.rubikscube;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+
+/**
+ * Move table backend that stores each table as one contiguous, row-major block of
+ * off-heap memory: entry [coord][move] lives at short index coord * 18 + move.
+ *
+ * Compared to the jagged arrays this removes the per-row object header, bounds
+ * check and pointer chase, keeps each table in consecutive pages, and takes the
+ * tables out of the heap so the GC never has to scan or move them.
+ *
+ * The cache file stores the move tables in this same layout, so the segments are
+ * normally read-only mappings of its sections (see TableCache.loadMapped) and the
+ * short[][] tables of Tables are never allocated. Only while a group is built,
+ * or when it can't be cached, the tables are copied into segments of their own,
+ * which are aligned to the page size. With -Drubikscube.hugePages=true those
+ * copies are aligned to 2 MB instead, which lets the OS back them with
+ * transparent huge pages; mapped sections keep the page alignment of the file.
+ */
+final class SegmentMoveTables implements MoveTableBackend {
+
+    private static final long PAGE_ALIGNMENT = 4096;
+    private static final long HUGE_PAGE_ALIGNMENT = 2 * 1024 * 1024;
+
+    // Little-endian like the cache file, which is the native order on common hardware
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final long alignment = Boolean.getBoolean("rubikscube.hugePages") ? HUGE_PAGE_ALIGNMENT : PAGE_ALIGNMENT;
+
+    // Set by map() or copy() as each table group becomes available
+    private MemorySegment twist, flip, slice, cornerPerm, udEdgePerm, urToUl, ubToDf, merge;
+
+    /**
+     * Map the move tables of a group from its cache file and fill the group's
+     * pruning tables from the same file.
+     *
+     * @return false if the file is missing or invalid (the pruning table contents
+     *         are then unspecified and the segments are left as they were)
+     */
+    boolean map(Tables.Group group, Path cacheFile, byte[][] pruneTables) {
+        long[] lengths = group == Tables.Group.PHASE1
+            ? new long[] {bytes(Tables.N_TWIST, 18), bytes(Tables.N_FLIP, 18), bytes(Tables.N_SLICE_PERM, 18)}
+            : new long[] {bytes(Tables.N_CORNER_PERM, 18), bytes(Tables.N_UD_EDGE_PERM, 18),
+                          bytes(Tables.N_UR_UL, 18), bytes(Tables.N_UB_DF, 18), bytes(336, 336)};
+        MemorySegment[] mapped = TableCache.loadMapped(cacheFile, lengths, pruneTables);
+        if (mapped == null) return false;
+        set(group, mapped);
+        return true;
+    }
+
+    /**
+     * Copy freshly built tables of a group, in the order of its cache file, into
+     * segments of their own. They are freed once map() replaces them.
+     */
+    void copy(Tables.Group group, short[][][] tables) {
+        Arena arena = Arena.ofAuto();
+        MemorySegment[] segments = new MemorySegment[tables.length];
+        for (int i = 0; i < tables.length; i++) segments[i] = flatten(arena, tables[i], alignment);
+        set(group, segments);
+    }
+
+    private void set(Tables.Group group, MemorySegment[] segments) {
+        if (group == Tables.Group.PHASE1) {
+            twist = segments[0];
+            flip = segments[1];
+            slice = segments[2];
+        } else {
+            cornerPerm = segments[0];
+            udEdgePerm = segments[1];
+            urToUl = segments[2];
+            ubToDf = segments[3];
+            merge = segments[4];
+        }
+    }
+
+    private static long bytes(int rows, int columns) {
+        return (long) rows * columns * Short.BYTES;
+    }
+
+    /** Copy a rectangular short[][] table into one row-major segment. */
+    private static MemorySegment flatten(Arena arena, short[][] table, long alignment) {
+        int width = table[0].length;
+        MemorySegment segment = arena.allocate(bytes(table.length, width), alignment);
+        for (int row = 0; row < table.length; row++) {
+            MemorySegment.copy(table[row], 0, segment, SHORT, (long) row * width * Short.BYTES, width);
+        }
+        return segment;
+    }
+
+    @Override
+    public int twist(int twist, int move) {
+        return this.twist.getAtIndex(SHORT, twist * 18L + move);
+    }
+
+    @Override
+    public int flip(int flip, int move) {
+        return this.flip.getAtIndex(SHORT, flip * 18L + move);
+    }
+
+    @Override
+    public int slice(int slice, int move) {
+        return this.slice.getAtIndex(SHORT, slice * 18L + move);
+    }
+
+    @Override
+    public int cornerPerm(int cornerPerm, int move) {
+        return this.cornerPerm.getAtIndex(SHORT, cornerPerm * 18L + move);
+    }
+
+    @Override
+    public int udEdgePerm(int udEdgePerm, int move) {
+        return this.udEdgePerm.getAtIndex(SHORT, udEdgePerm * 18L + move);
+    }
+
+    @Override
+    public int urToUl(int urToUl, int move) {
+        return this.urToUl.getAtIndex(SHORT, urToUl * 18L + move);
+    }
+
+    @Override
+    public int ubToDf(int ubToDf, int move) {
+        return this.ubToDf.getAtIndex(SHORT, ubToDf * 18L + move);
+    }
+
+    @Override
+    public int merge(int urToUl, int ubToDf) {
+        return this.merge.getAtIndex(SHORT, urToUl * 336L + ubToDf);
+    }
+}
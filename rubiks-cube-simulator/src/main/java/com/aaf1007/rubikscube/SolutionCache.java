@@ -0,0 +1,313 @@
+package com.aaf1007.rubikscube;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Least-recently-used cache of solutions in front of TwoPhase.solve, so positions
+ * that are solved again and again (standard scrambles, benchmark positions, the
+ * same file submitted twice) are answered without searching.
+ *
+ * Cubes are keyed by their pieces packed into 128 bits, after conjugating them
+ * with all 48 symmetries and taking the smallest key: a cube and its rotated or
+ * mirrored versions share one entry. Solutions are stored for that canonical
+ * cube and conjugated back to the frame of the cube asked for.
+ *
+ * A cache created with a file can be saved and is loaded again when the next
+ * process creates it, so a restarted solver starts warm. Saving merges with what
+ * other processes saved to the file in the meantime instead of overwriting it.
+ * shared() is the cache Solver uses: -Drubikscube.solutionCache=N entries
+ * (default 100000, 0 disables it), kept in memory only unless
+ * -Drubikscube.solutionCacheFile=/some/file names a file to persist it in.
+ *
+ * File layout (big-endian, as DataOutputStream writes it):
+ *   magic "RCSC" (int), format version (int), number of entries (int)
+ *   per entry: corners (long), edges (long), solution (modified UTF-8)
+ *   CRC32C of everything before it (long)
+ * A file whose magic, version or checksum don't match is ignored.
+ */
+public final class SolutionCache {
+
+    private static final int MAGIC = 0x52435343;  // "RCSC"
+    private static final int VERSION = 1;
+
+    /** Packed pieces: 5 bits per corner (position << 2 | orientation), 5 per edge (position << 1 | flip). */
+    private record Key(long corners, long edges) {
+        boolean lessThan(Key other) {
+            return corners != other.corners ? corners < other.corners : edges < other.edges;
+        }
+    }
+
+    private static SolutionCache shared;
+
+    private final int capacity;
+    private final Path file;
+    private final LinkedHashMap<Key, String> solutions;
+    private boolean modified;
+    private long hits, misses;
+
+    /** In-memory cache holding at most 'capacity' solutions (0 caches nothing). */
+    public SolutionCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * Cache holding at most 'capacity' solutions, starting with the ones saved in
+     * the file (if it exists and is valid). save() writes them back.
+     *
+     * @param file null for an in-memory cache
+     */
+    public SolutionCache(int capacity, Path file) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must not be negative: " + capacity);
+        this.capacity = capacity;
+        this.file = file;
+        // Access order: the first entry is the least recently used one
+        this.solutions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > SolutionCache.this.capacity;
+            }
+        };
+        if (file != null && capacity > 0) load();
+    }
+
+    /** The cache configured with system properties, created on first use. */
+    public static synchronized SolutionCache shared() {
+        if (shared == null) {
+            String file = System.getProperty("rubikscube.solutionCacheFile");
+            shared = new SolutionCache(Integer.getInteger("rubikscube.solutionCache", 100_000),
+                file != null && !file.isEmpty() ? Path.of(file) : null);
+        }
+        return shared;
+    }
+
+    /**
+     * Solve the cube, or return a cached solution of at most maxDepth moves.
+     * Arguments and result are as TwoPhase.solve; errors are not cached.
+     */
+    public String solve(Cubie cube, int maxDepth, long timeOut) {
+        String cached = get(cube);
+        if (cached != null && length(cached) <= maxDepth) return cached;
+
+        String solution = TwoPhase.solve(cube, maxDepth, timeOut);
+        if (!solution.startsWith("Error")) put(cube, solution);
+        return solution;
+    }
+
+    /** The cached solution for the cube (in TwoPhase.solve format), or null. */
+    public String get(Cubie cube) {
+        if (capacity == 0 || cube.verify() != 0) return null;
+
+        int[] symmetry = new int[1];
+        Key key = canonicalKey(cube, symmetry);
+        String solution;
+        synchronized (this) {
+            solution = solutions.get(key);
+            if (solution == null) misses++;
+            else hits++;
+        }
+        // Stored for S * cube * S^-1; conjugating its moves by S^-1 solves the cube
+        return solution != null ? conjugate(solution, Symmetry.inverse(symmetry[0])) : null;
+    }
+
+    /** Cache a solution for the cube, unless a shorter one is cached already. */
+    public void put(Cubie cube, String solution) {
+        if (capacity == 0 || cube.verify() != 0) return;
+
+        int[] symmetry = new int[1];
+        Key key = canonicalKey(cube, symmetry);
+        String canonical = conjugate(solution, symmetry[0]);
+        synchronized (this) {
+            String existing = solutions.get(key);
+            if (existing == null || length(canonical) < length(existing)) {
+                solutions.put(key, canonical);
+                modified = true;
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return solutions.size();
+    }
+
+    /** Lookups that found a solution. */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /** Lookups that found nothing. */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * Write the cached solutions to the cache file, if there is one and anything
+     * changed since it was loaded. Entries saved to the file by other processes
+     * since are kept (the shorter solution wins where both have one), and the
+     * least recently used are dropped beyond the capacity. Like the table cache
+     * this is best-effort: the file is replaced atomically and failures are ignored.
+     */
+    public void save() {
+        Map<Key, String> snapshot;
+        synchronized (this) {
+            if (file == null || !modified) return;
+            snapshot = new LinkedHashMap<>(solutions);
+            modified = false;
+        }
+
+        Path temp = null;
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            Path lockFile = dir.resolve(file.getFileName() + ".lock");
+            // Held from reading the file to replacing it, so concurrent saves don't lose entries
+            try (FileChannel lock = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                lock.lock();  // Released when the channel is closed
+                Map<Key, String> merged = new LinkedHashMap<>();
+                if (!read(file, merged)) merged.clear();
+                for (Map.Entry<Key, String> entry : snapshot.entrySet()) {
+                    // Re-inserted at the end: ours are the most recently used
+                    String existing = merged.remove(entry.getKey());
+                    String solution = entry.getValue();
+                    merged.put(entry.getKey(), existing != null && length(existing) < length(solution) ? existing : solution);
+                }
+                Iterator<Key> eldest = merged.keySet().iterator();
+                for (int excess = merged.size() - capacity; excess > 0; excess--) {
+                    eldest.next();
+                    eldest.remove();
+                }
+
+                temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+                write(temp, merged);
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        } catch (IOException e) {
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing more we can do
+            }
+        }
+    }
+
+    /** Read the cache file; a missing or damaged file leaves the cache empty. */
+    private void load() {
+        Map<Key, String> saved = new LinkedHashMap<>();
+        if (read(file, saved)) solutions.putAll(saved);
+    }
+
+    /**
+     * Read the entries of a cache file into 'into', least recently used first.
+     *
+     * @return false if the file is missing or invalid (entries may have been added)
+     */
+    private static boolean read(Path file, Map<Key, String> into) {
+        if (!Files.isRegularFile(file)) return false;
+        CRC32C crc = new CRC32C();
+        try (DataInputStream in = new DataInputStream(
+                new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return false;
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                into.put(new Key(in.readLong(), in.readLong()), in.readUTF());
+            }
+            long expected = crc.getValue();
+            return in.readLong() == expected && in.read() < 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static void write(Path file, Map<Key, String> entries) throws IOException {
+        CRC32C crc = new CRC32C();
+        try (DataOutputStream out = new DataOutputStream(
+                new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            // Least recently used first, so loading restores the LRU order
+            for (Map.Entry<Key, String> entry : entries.entrySet()) {
+                out.writeLong(entry.getKey().corners());
+                out.writeLong(entry.getKey().edges());
+                out.writeUTF(entry.getValue());
+            }
+            out.writeLong(crc.getValue());
+        }
+    }
+
+    /**
+     * Smallest key among the cube's 48 conjugates.
+     *
+     * @param symmetry Receives the symmetry s whose conjugate S * cube * S^-1 has that key
+     */
+    private static Key canonicalKey(Cubie cube, int[] symmetry) {
+        Key best = null;
+        for (int s = 0; s < Symmetry.N_SYM; s++) {
+            Key key = key(s == 0 ? cube : Symmetry.conjugate(cube, s));
+            if (best == null || key.lessThan(best)) {
+                best = key;
+                symmetry[0] = s;
+            }
+        }
+        return best;
+    }
+
+    private static Key key(Cubie cube) {
+        long corners = 0;
+        for (int i = 0; i < 8; i++) {
+            corners = corners << 5 | cube.cornerPerm[i] << 2 | cube.cornerOrient[i];
+        }
+        long edges = 0;
+        for (int i = 0; i < 12; i++) {
+            edges = edges << 5 | cube.edgePerm[i] << 1 | cube.edgeOrient[i];
+        }
+        return new Key(corners, edges);
+    }
+
+    /** Conjugate every move of a solution string by symmetry s (see Symmetry.conjugateMove). */
+    private static String conjugate(String solution, int s) {
+        if (s == 0) return solution;
+        StringBuilder result = new StringBuilder(solution.length());
+        int i = 0;
+        while (i < solution.length()) {
+            // A run of 1-3 equal letters is one move: U, U2 or U'
+            char face = solution.charAt(i);
+            int turns = 0;
+            while (i < solution.length() && solution.charAt(i) == face) {
+                turns++;
+                i++;
+            }
+            int move = Symmetry.conjugateMove(3 * "URFDLB".indexOf(face) + turns - 1, s);
+            result.append(String.valueOf("URFDLB".charAt(move / 3)).repeat(move % 3 + 1));
+        }
+        return result.toString();
+    }
+
+    /** Number of moves in a solution string. */
+    private static int length(String solution) {
+        int moves = 0;
+        for (int i = 0; i < solution.length(); i++) {
+            if (i == 0 || solution.charAt(i) != solution.charAt(i - 1)) moves++;
+        }
+        return moves;
+    }
+}
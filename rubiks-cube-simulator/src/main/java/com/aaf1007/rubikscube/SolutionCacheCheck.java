@@ -0,0 +1,83 @@
+package com.aaf1007.rubikscube;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Checks of SolutionCache: a solution cached for one cube is found for all 48 of
+ * its conjugates and, conjugated back, solves each of them; the capacity bounds
+ * the cache; and saving to a file merges with what another cache saved there.
+ *
+ * usage: java com.aaf1007.rubikscube.SolutionCacheCheck [random cubes]
+ */
+public class SolutionCacheCheck {
+
+    public static void main(String[] args) throws Exception {
+        int cubes = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        if (cubes < 3) throw new IllegalArgumentException("At least 3 cubes are needed: " + cubes);
+
+        Random random = new Random(7);
+        Cubie[] scrambled = new Cubie[cubes];
+        for (int i = 0; i < cubes; i++) {
+            scrambled[i] = new Cubie();
+            for (int m = 0; m < 25; m++) scrambled[i].applyMove(random.nextInt(Tables.N_MOVES));
+        }
+
+        SolutionCache cache = new SolutionCache(cubes);
+        for (Cubie cube : scrambled) {
+            String solution = cache.solve(cube, 25, 10);
+            check(!solution.startsWith("Error"), "search failed with " + solution);
+            check(Algorithm.compile(solution).solves(cube), "solution " + solution + " doesn't solve the cube");
+
+            for (int s = 0; s < Symmetry.N_SYM; s++) {
+                Cubie conjugate = Symmetry.conjugate(cube, s);
+                String cached = cache.get(conjugate);
+                check(cached != null, "conjugate by symmetry " + s + " not found");
+                check(Algorithm.compile(cached).solves(conjugate),
+                    "cached solution " + cached + " doesn't solve the conjugate by symmetry " + s);
+            }
+        }
+        check(cache.size() == cubes, "cache holds " + cache.size() + " entries, expected " + cubes);
+        check(cache.hits() == (long) cubes * Symmetry.N_SYM, "unexpected hit count " + cache.hits());
+
+        // Least recently used entries are dropped beyond the capacity
+        SolutionCache small = new SolutionCache(2);
+        for (Cubie cube : scrambled) small.solve(cube, 25, 10);
+        check(small.size() == 2, "cache of capacity 2 holds " + small.size() + " entries");
+        check(small.get(scrambled[cubes - 1]) != null, "most recent solution dropped");
+        check(small.get(scrambled[0]) == null, "least recent solution kept");
+
+        Path dir = Files.createTempDirectory("solutioncache-check");
+        Path file = dir.resolve("solutions.bin");
+        try {
+            // Two caches saving their own solutions to one file
+            SolutionCache first = new SolutionCache(cubes, file);
+            SolutionCache second = new SolutionCache(cubes, file);
+            for (int i = 0; i < cubes; i++) (i % 2 == 0 ? first : second).solve(scrambled[i], 25, 10);
+            first.save();
+            second.save();
+
+            SolutionCache loaded = new SolutionCache(cubes, file);
+            check(loaded.size() == cubes, "merged file holds " + loaded.size() + " entries, expected " + cubes);
+            for (Cubie cube : scrambled) {
+                String cached = loaded.get(cube);
+                check(cached != null && Algorithm.compile(cached).solves(cube), "saved solution lost or wrong");
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length / 2] ^= 1;
+            Files.write(file, bytes);
+            check(new SolutionCache(cubes, file).size() == 0, "damaged file accepted");
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(dir.resolve("solutions.bin.lock"));
+            Files.delete(dir);
+        }
+        System.out.println("SolutionCache: all checks passed");
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Receives the solutions of an anytime solve (see TwoPhase.solveAnytime) as they
+ * are found. Each solution is shorter than the previous one.
+ */
+@FunctionalInterface
+public interface SolutionListener {
+
+    /**
+     * Called on the solving thread for every improved solution.
+     *
+     * @param solution Solution string in TwoPhase.solve format
+     * @param length   Number of moves in the solution
+     * @return true to keep searching for a shorter solution, false to stop and
+     *         return this one
+     */
+    boolean onSolution(String solution, int length);
+}
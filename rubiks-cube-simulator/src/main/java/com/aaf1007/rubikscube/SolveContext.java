@@ -0,0 +1,145 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Per-search state of the two-phase algorithm: the move stack and the coordinate
+ * and heuristic values at every search depth.
+ *
+ * A context can be used by one solve at a time. Reusing it for later solves
+ * avoids allocating the stacks again, so a thread solving many cubes should keep
+ * one context (TwoPhase.solve(cube, maxDepth, timeOut) keeps one per thread).
+ * The precomputed Tables are read-only and shared by all contexts.
+ */
+public final class SolveContext {
+
+    // Longest move sequence a search can build, plus one entry for the position it ends in
+    static final int MAX_LENGTH = 31;
+
+    // faceIndex[i] = which face (0-5 for U,R,F,D,L,B)
+    // turnCount[i] = turn amount (1,2,3 for 90°,180°,270°)
+    final int[] faceIndex = new int[MAX_LENGTH];
+    final int[] turnCount = new int[MAX_LENGTH];
+
+    // Phase 1 coordinates at each search depth
+    // These track corner orientation, edge orientation, and E-slice edge positions
+    final int[] edgeOrient = new int[MAX_LENGTH];    // Edge orientation coordinate
+    final int[] cornerOrient = new int[MAX_LENGTH];  // Corner orientation coordinate
+    final int[] slicePos = new int[MAX_LENGTH];      // E-slice edge position coordinate (just position, /24)
+
+    // Phase 2 coordinates at each search depth
+    final int[] parity = new int[MAX_LENGTH];      // Permutation parity (0 or 1)
+    final int[] cornerPerm = new int[MAX_LENGTH];  // Corner permutation coordinate
+    final int[] slicePerm = new int[MAX_LENGTH];   // Full slice coordinate (position + order)
+    final int[] urToUl = new int[MAX_LENGTH];      // Helper: edges UR, UF, UL
+    final int[] ubToDf = new int[MAX_LENGTH];      // Helper: edges UB, DR, DF
+    final int[] udEdgePerm = new int[MAX_LENGTH];  // UD edge permutation (merged from helpers)
+
+    // Exact distances from each slice pruning table at each search depth. The mod3
+    // table encoding needs the parent's distance to decode a child's.
+    final int[] sliceFlipDist = new int[MAX_LENGTH];
+    final int[] sliceTwistDist = new int[MAX_LENGTH];
+    final int[] sliceCornerDist = new int[MAX_LENGTH];
+    final int[] sliceEdgeDist = new int[MAX_LENGTH];
+
+    // IDA* heuristic: minimum moves estimated to reach goal from each search depth
+    final int[] minDistPhase1 = new int[MAX_LENGTH];
+    final int[] minDistPhase2 = new int[MAX_LENGTH];
+
+    // Phase 2 coordinates are computed along the phase 1 stack only when phase 1 reaches
+    // G1, and kept for the next time: cornerPerm, slicePerm and parity are up to date at
+    // depths [0, cornerReplayed], urToUl and ubToDf at [0, edgeReplayed]. Changing the
+    // move at a depth lowers both marks to it, so only the changed suffix is replayed.
+    int cornerReplayed;
+    int edgeReplayed;
+
+    // Metrics: phase 2 entries, and phase 1 moves replayed to compute their coordinates
+    long phase2Entries;
+    long replayedMoves;
+
+    // Search nodes expanded since the search last checked its deadline (TwoPhase.Search.stop)
+    int uncountedNodes;
+
+    // Phase 2 results by G1 position, created on first use unless caching was disabled.
+    // A cache set with setPhase2Cache is kept across solves; the context's own is not.
+    private Phase2Cache phase2Cache;
+    private boolean phase2CacheDisabled = Phase2Cache.DEFAULT_CAPACITY <= 0;
+    private boolean phase2CacheSet;
+
+    // Cache of the running solve (see cacheForSolve()), shared by the workers of a
+    // parallel solve; null if caching is disabled
+    Phase2Cache solveCache;
+
+    // Frame the searched cube was relabelled into by TwoPhase.solveRacing: the symmetry
+    // it was conjugated with, and whether it's the inverse of the cube to solve.
+    // solutionToString maps the moves found back to the original cube.
+    int symmetry;
+    boolean inverse;
+
+    /** Copy the start of the search (depth 0) from another context. */
+    void copyStart(SolveContext other) {
+        edgeOrient[0] = other.edgeOrient[0];
+        cornerOrient[0] = other.cornerOrient[0];
+        slicePos[0] = other.slicePos[0];
+        parity[0] = other.parity[0];
+        cornerPerm[0] = other.cornerPerm[0];
+        slicePerm[0] = other.slicePerm[0];
+        urToUl[0] = other.urToUl[0];
+        ubToDf[0] = other.ubToDf[0];
+        sliceFlipDist[0] = other.sliceFlipDist[0];
+        sliceTwistDist[0] = other.sliceTwistDist[0];
+        symmetry = other.symmetry;
+        inverse = other.inverse;
+        solveCache = other.solveCache;
+        cornerReplayed = 0;
+        edgeReplayed = 0;
+    }
+
+    /**
+     * The cache of phase 2 results this context searches with. Unless it was set
+     * with setPhase2Cache, it's emptied at the start of every solve, so it only
+     * holds results of the last one.
+     *
+     * @return the cache, or null if caching is disabled
+     */
+    public Phase2Cache phase2Cache() {
+        if (phase2Cache == null && !phase2CacheDisabled) {
+            phase2Cache = new Phase2Cache(Phase2Cache.DEFAULT_CAPACITY);
+        }
+        return phase2Cache;
+    }
+
+    /**
+     * Search with the given phase 2 cache instead, e.g. one shared by the contexts
+     * of several threads. Its entries are valid for any cube, so it's kept across
+     * solves rather than emptied. null disables caching.
+     */
+    public void setPhase2Cache(Phase2Cache cache) {
+        phase2Cache = cache;
+        phase2CacheDisabled = cache == null;
+        phase2CacheSet = cache != null;
+    }
+
+    /**
+     * The phase 2 cache for a solve starting in this context: its own cache,
+     * emptied so nothing carries over from earlier solves, or the one set with
+     * setPhase2Cache as it is. null if caching is disabled.
+     */
+    Phase2Cache cacheForSolve() {
+        Phase2Cache cache = phase2Cache();
+        if (cache != null && !phase2CacheSet) cache.clear();
+        return cache;
+    }
+
+    /** Times phase 1 reached G1 and entered phase 2, since the last solve started in this context. */
+    public long phase2Entries() {
+        return phase2Entries;
+    }
+
+    /**
+     * Phase 1 moves replayed to compute the phase 2 coordinates, since the last solve
+     * started in this context. Without reuse this would be the sum of the phase 1
+     * depths of all phase 2 entries.
+     */
+    public long replayedMoves() {
+        return replayedMoves;
+    }
+}
@@ -0,0 +1,18 @@
+package com.aaf1007.rubikscube;
+
+/**
+ * Receives the progress of a two-phase search (see TwoPhase.solveAsync) after
+ * every phase 1 depth it has searched completely.
+ */
+@FunctionalInterface
+public interface SolveProgressListener {
+
+    /**
+     * Called on the solving thread, never by two threads at once for one solve.
+     *
+     * @param depthPhase1 Phase 1 depth that was just searched
+     * @param nodes       Phase 1 and phase 2 nodes expanded so far, by all workers
+     * @param bestLength  Length of the best solution so far, or -1 if none was found yet
+     */
+    void onProgress(int depthPhase1, long nodes, int bestLength);
+}
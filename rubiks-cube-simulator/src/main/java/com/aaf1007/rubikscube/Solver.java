@@ -4,6 +4,7 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.nio.file.Path;
 
 
 public class Solver {
@@ -15,42 +16,38 @@ public class Solver {
             return;
         }
 
+        // The input holds one cube or many (see CubeStreamReader); the output gets
+        // one solution per line, in input order
         String inputFilename = args[0];
-        RubiksCube rubiksCube = new RubiksCube(inputFilename);
-        Cubie cubie = rubiksCube.toCubie();
-
-        // Solve using two-phase algorithm
-        String solution = TwoPhase.solve(cubie, 25, 10);
-
-        //System.out.println("\u001B[32mSolution: " + solution + "\u001B[0m");
-
-        for (int i = 0; i < solution.length(); i++) {
-            int move = charToMove(solution.charAt(i));
-            if (move >= 0) {
-                cubie.applyMove(move);
+        SolutionCache cache = SolutionCache.shared();
+        try (CubeStreamReader reader = new CubeStreamReader(Path.of(inputFilename))) {
+            Cubie cubie = new Cubie();
+            if (!reader.next(cubie)) throw new IOException("No cube in " + inputFilename);
+
+            // Write solution to output file
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(args[1]))) {
+                boolean first = true;
+                do {
+                    // Solve using two-phase algorithm, unless this position (or a rotation or
+                    // mirror image of it) was solved before
+                    String solution = cache.solve(cubie, 25, 10);
+
+                    // Verify Solution: one that doesn't solve the cube is reported as
+                    // "Error 9" (1-8 are the codes of TwoPhase.solve), and the rest of
+                    // the cubes are still solved
+                    if (!solution.startsWith("Error") && !Algorithm.compile(solution).solves(cubie)) {
+                        System.err.println("Solution " + solution + " doesn't solve the cube ending on line "
+                            + reader.lineNumber() + " of " + inputFilename);
+                        solution = "Error 9";
+                    }
+
+                    if (!first) writer.newLine();
+                    writer.write(solution);
+                    first = false;
+                } while (reader.next(cubie));
             }
-        }
-        // Verify Solution
-        //System.out.println("Solved: " + cubie.isSolved());
-
-        // Write solution to output file
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(args[1]))) {
-            writer.write(solution);
-        }
-    }
-
-    /**
-     * Convert face character to turn move index
-     */
-    private static int charToMove(char c) {
-        switch (c) {
-            case 'U': return 0;  
-            case 'R': return 3;
-            case 'F': return 6;
-            case 'D': return 9;
-            case 'L': return 12;
-            case 'B': return 15;
-            default: return -1;
+        } finally {
+            cache.save();
         }
     }
 }
@@ -0,0 +1,142 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * The 48 symmetries of the cube, as Cubie permutations.
+ *
+ * Every symmetry is a product of four basic symmetries:
+ * - ROT_URF3: 120° rotation around the URF-DBL diagonal (order 3)
+ * - ROT_F2:   180° rotation around the F-B axis (order 2)
+ * - ROT_U4:   90° rotation around the U-D axis (order 4)
+ * - MIRR_LR2: reflection through the plane between L and R (order 2)
+ *
+ * Symmetry s = 16 * urf3 + 8 * f2 + 2 * u4 + lr2 is ROT_URF3^urf3 * ROT_F2^f2 * ROT_U4^u4 * MIRR_LR2^lr2.
+ * The first 16 symmetries (urf3 = 0) map the UD axis onto itself; these are the
+ * symmetries that preserve the phase 1 goal G1 and are used to reduce phase 1
+ * coordinates.
+ *
+ * Conjugating a cube by a symmetry (S * c * S^-1) relabels it as if it had been
+ * rotated/reflected in space: the result is a different but equally hard position.
+ */
+public final class Symmetry {
+
+    public static final int N_SYM = 48;        // All symmetries of the cube
+    public static final int N_SYM_D4H = 16;    // Symmetries that preserve the UD axis
+
+    // Basic symmetry cubes, same piece numbering as Cubie
+    private static final Cubie ROT_URF3 = basicCube(
+        new int[] {0, 4, 5, 1, 3, 7, 6, 2}, new byte[] {1, 2, 1, 2, 2, 1, 2, 1},
+        new int[] {1, 8, 5, 9, 3, 11, 7, 10, 0, 4, 6, 2}, new byte[] {1, 0, 1, 0, 1, 0, 1, 0, 1, 1, 1, 1});
+    private static final Cubie ROT_F2 = basicCube(
+        new int[] {5, 4, 7, 6, 1, 0, 3, 2}, new byte[] {0, 0, 0, 0, 0, 0, 0, 0},
+        new int[] {6, 5, 4, 7, 2, 1, 0, 3, 9, 8, 11, 10}, new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+    private static final Cubie ROT_U4 = basicCube(
+        new int[] {3, 0, 1, 2, 7, 4, 5, 6}, new byte[] {0, 0, 0, 0, 0, 0, 0, 0},
+        new int[] {3, 0, 1, 2, 7, 4, 5, 6, 11, 8, 9, 10}, new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1});
+    private static final Cubie MIRR_LR2 = basicCube(
+        new int[] {1, 0, 3, 2, 5, 4, 7, 6}, new byte[] {3, 3, 3, 3, 3, 3, 3, 3},
+        new int[] {2, 1, 0, 3, 6, 5, 4, 7, 9, 8, 11, 10}, new byte[] {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+
+    // All 48 symmetry cubes, indexed as described above
+    private static final Cubie[] SYM_CUBES = new Cubie[N_SYM];
+
+    // INVERSE[s] = index of the inverse symmetry S^-1
+    private static final int[] INVERSE = new int[N_SYM];
+
+    // MOVE_CONJ[18 * s + m] = the move S * m * S^-1 (mirrors turn clockwise moves into counter-clockwise ones)
+    private static final int N_MOVES = 18;
+    private static final byte[] MOVE_CONJ = new byte[N_SYM * N_MOVES];
+
+    static {
+        Cubie cube = new Cubie();
+        int s = 0;
+        for (int urf3 = 0; urf3 < 3; urf3++) {
+            for (int f2 = 0; f2 < 2; f2++) {
+                for (int u4 = 0; u4 < 4; u4++) {
+                    for (int lr2 = 0; lr2 < 2; lr2++) {
+                        SYM_CUBES[s++] = new Cubie(cube);
+                        cube.multiply(MIRR_LR2);
+                    }
+                    cube.multiply(ROT_U4);
+                }
+                cube.multiply(ROT_F2);
+            }
+            cube.multiply(ROT_URF3);
+        }
+
+        // Find each inverse by brute force: S * T = identity
+        for (int i = 0; i < N_SYM; i++) {
+            for (int j = 0; j < N_SYM; j++) {
+                Cubie product = new Cubie(SYM_CUBES[i]);
+                product.multiply(SYM_CUBES[j]);
+                if (product.isSolved()) {
+                    INVERSE[i] = j;
+                    break;
+                }
+            }
+        }
+
+        // Conjugate every move and find which move it turned into
+        Cubie[] moveCubes = new Cubie[N_MOVES];
+        for (int m = 0; m < N_MOVES; m++) {
+            moveCubes[m] = new Cubie();
+            moveCubes[m].applyMove(m);
+        }
+        for (int i = 0; i < N_SYM; i++) {
+            for (int m = 0; m < N_MOVES; m++) {
+                Cubie conj = conjugate(moveCubes[m], i);
+                for (int n = 0; n < N_MOVES; n++) {
+                    if (Arrays.equals(conj.cornerPerm, moveCubes[n].cornerPerm)
+                            && Arrays.equals(conj.cornerOrient, moveCubes[n].cornerOrient)
+                            && Arrays.equals(conj.edgePerm, moveCubes[n].edgePerm)
+                            && Arrays.equals(conj.edgeOrient, moveCubes[n].edgeOrient)) {
+                        MOVE_CONJ[N_MOVES * i + m] = (byte) n;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private Symmetry() {}
+
+    private static Cubie basicCube(int[] cornerPerm, byte[] cornerOrient, int[] edgePerm, byte[] edgeOrient) {
+        Cubie cube = new Cubie();
+        cube.cornerPerm = cornerPerm;
+        cube.cornerOrient = cornerOrient;
+        cube.edgePerm = edgePerm;
+        cube.edgeOrient = edgeOrient;
+        return cube;
+    }
+
+    /** Returns a copy of symmetry cube s (0-47). */
+    public static Cubie symCube(int s) {
+        return new Cubie(SYM_CUBES[s]);
+    }
+
+    /** Returns the index of the inverse of symmetry s. */
+    public static int inverse(int s) {
+        return INVERSE[s];
+    }
+
+    /**
+     * Conjugate a cube by symmetry s: returns S * cube * S^-1 as a new cube.
+     * The input cube is not modified.
+     */
+    public static Cubie conjugate(Cubie cube, int s) {
+        Cubie result = new Cubie(SYM_CUBES[s]);
+        result.multiply(cube);
+        result.multiply(SYM_CUBES[INVERSE[s]]);
+        return result;
+    }
+
+    /**
+     * Conjugate a move (0-17, as Cubie.applyMove) by symmetry s: the move S * move * S^-1.
+     * If a sequence solves conjugate(cube, s), conjugating each of its moves by
+     * inverse(s) gives a sequence that solves the cube itself.
+     */
+    public static int conjugateMove(int move, int s) {
+        return MOVE_CONJ[N_MOVES * s + move];
+    }
+}
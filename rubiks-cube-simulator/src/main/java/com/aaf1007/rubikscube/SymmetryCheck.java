@@ -0,0 +1,85 @@
+package com.aaf1007.rubikscube;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Checks of the identities Symmetry relies on: the 48 symmetries are distinct,
+ * S * S^-1 is the identity, conjugating by S and then by S^-1 gives the cube
+ * back, conjugation preserves products, and conjugateMove matches conjugating
+ * the cube of a move.
+ *
+ * usage: java com.aaf1007.rubikscube.SymmetryCheck [random cubes]
+ */
+public class SymmetryCheck {
+
+    public static void main(String[] args) {
+        int cubes = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+
+        Set<String> distinct = new HashSet<>();
+        for (int s = 0; s < Symmetry.N_SYM; s++) {
+            distinct.add(state(Symmetry.symCube(s)));
+
+            int inverse = Symmetry.inverse(s);
+            check(Symmetry.inverse(inverse) == s, "inverse of the inverse of " + s + " isn't " + s);
+            Cubie product = Symmetry.symCube(s);
+            product.multiply(Symmetry.symCube(inverse));
+            check(product.isSolved(), "S * S^-1 isn't the identity for symmetry " + s);
+
+            for (int move = 0; move < Tables.N_MOVES; move++) {
+                Cubie moveCube = new Cubie();
+                moveCube.applyMove(move);
+                Cubie expected = new Cubie();
+                expected.applyMove(Symmetry.conjugateMove(move, s));
+                check(same(Symmetry.conjugate(moveCube, s), expected),
+                    "conjugateMove(" + move + ", " + s + ") doesn't match conjugating the move");
+            }
+        }
+        check(distinct.size() == Symmetry.N_SYM, "only " + distinct.size() + " distinct symmetries");
+        check(Symmetry.symCube(0).isSolved(), "symmetry 0 isn't the identity");
+
+        Random random = new Random(3);
+        for (int i = 0; i < cubes; i++) {
+            Cubie a = randomCube(random);
+            Cubie b = randomCube(random);
+            int s = random.nextInt(Symmetry.N_SYM);
+
+            Cubie conjugated = Symmetry.conjugate(a, s);
+            check(conjugated.verify() == 0, "conjugate of a valid cube is invalid");
+            check(same(Symmetry.conjugate(conjugated, Symmetry.inverse(s)), a),
+                "conjugating by " + s + " and its inverse doesn't give the cube back");
+
+            // S * (a * b) * S^-1 = (S * a * S^-1) * (S * b * S^-1)
+            Cubie ab = new Cubie(a);
+            ab.multiply(b);
+            Cubie product = Symmetry.conjugate(a, s);
+            product.multiply(Symmetry.conjugate(b, s));
+            check(same(Symmetry.conjugate(ab, s), product), "conjugation by " + s + " doesn't preserve products");
+        }
+        System.out.println("Symmetry: all checks passed");
+    }
+
+    private static Cubie randomCube(Random random) {
+        Cubie cube = new Cubie();
+        for (int i = 0; i < 30; i++) cube.applyMove(random.nextInt(Tables.N_MOVES));
+        return cube;
+    }
+
+    private static String state(Cubie cube) {
+        return Arrays.toString(cube.cornerPerm) + Arrays.toString(cube.cornerOrient)
+            + Arrays.toString(cube.edgePerm) + Arrays.toString(cube.edgeOrient);
+    }
+
+    private static boolean same(Cubie a, Cubie b) {
+        return Arrays.equals(a.cornerPerm, b.cornerPerm)
+            && Arrays.equals(a.cornerOrient, b.cornerOrient)
+            && Arrays.equals(a.edgePerm, b.edgePerm)
+            && Arrays.equals(a.edgeOrient, b.edgeOrient);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -0,0 +1,362 @@
+package com.aaf1007.rubikscube;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent binary cache for the precomputed tables in Tables.
+ *
+ * Building the move and pruning tables takes a few seconds, which dominates the
+ * runtime of short-lived solver processes. The first process to build the tables
+ * writes them to a cache file; later processes memory-map that file read-only.
+ * - The large tables (the symmetry-reduced phase 1 table, the phase 2 corner x edge
+ *   table and the optimal solver's pattern databases) are read straight from the
+ *   mapping, so all solver JVMs on a host share one copy in the OS page cache.
+ * - The small move and slice pruning tables (~5 MB) are copied into the heap arrays
+ *   of Tables, which the array move backend reads. Every JVM has its own copy of
+ *   those. The segment move backend maps its move tables instead (loadMapped).
+ * Cache files are created readable by everyone (rw-r--r--), so the solvers of
+ * all users can map a shared cache directory.
+ *
+ * File layout (little-endian):
+ *   [0]  magic "RCTB"              (int)
+ *   [4]  format version            (int)
+ *   [8]  number of sections        (int)
+ *   [12] reserved                  (int)
+ *   [16] CRC32C of the section descriptors (long)
+ *   [24] section descriptors: {offset (long), length in bytes (long), CRC32C of
+ *        the section data (long)} per section
+ *   ...  section data, each section starting on a 4096-byte boundary
+ *
+ * Sections are stored in the order they are passed in: first the short move
+ * tables (flattened row-major), then the byte pruning tables. A file whose
+ * magic, version, section sizes or descriptor checksum don't match is ignored
+ * and rebuilt. Loading checks the data checksum of the sections it copies, which
+ * it reads in full anyway, but not of the mapped ones: that would read every page
+ * of the large tables at every start. verify() checks every section.
+ */
+final class TableCache {
+
+    private static final int MAGIC = 0x42544352;  // "RCTB" read as little-endian
+    static final int VERSION = 2;
+
+    // Sections start on page boundaries so they can be mapped individually
+    static final int ALIGN = 4096;
+    private static final int HEADER_SIZE = 24;
+    private static final int DESCRIPTOR_SIZE = 24;
+
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    // Cache files are mapped by the solvers of every user on the host
+    private static final Set<PosixFilePermission> SHARED_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    private TableCache() {}
+
+    /**
+     * Location of the cache file for one group of tables, or null if caching is disabled.
+     * Files live in ~/.rubikscube unless overridden with -Drubikscube.tableCache=/some/dir;
+     * -Drubikscube.tableCache=off disables the cache.
+     */
+    static Path path(String name) {
+        String configured = System.getProperty("rubikscube.tableCache");
+        if ("off".equals(configured)) return null;
+        Path dir = configured != null ? Path.of(configured) : Path.of(System.getProperty("user.home"), ".rubikscube");
+        return dir.resolve(name + "-v" + VERSION + ".bin");
+    }
+
+    /**
+     * Try to fill the given tables from the cache file.
+     *
+     * @return true if every table was loaded, false if the file is missing or invalid
+     *         (in which case the table contents are unspecified and must be rebuilt)
+     */
+    static boolean load(Path file, short[][][] moveTables, byte[][] pruneTables) {
+        return load(file, moveTables, new long[0], pruneTables, new long[0]) != null;
+    }
+
+    /**
+     * Map the sections of a cache file read-only, without copying them to the heap.
+     * The mapping stays valid for the lifetime of the JVM.
+     *
+     * @param lengths Expected byte length of each section
+     * @return one read-only segment per section, or null if the file is missing or invalid
+     */
+    static MemorySegment[] map(Path file, long... lengths) {
+        return load(file, new short[0][][], new long[0], new byte[0][], lengths);
+    }
+
+    /**
+     * Fill the given tables from the first sections of the cache file, like
+     * load(file, moveTables, pruneTables), and map the sections after them
+     * read-only, like map(file, lengths).
+     *
+     * @param mappedLengths Expected byte length of each section after the tables
+     * @return one read-only segment per mapped section, or null if the file is
+     *         missing or invalid (the table contents are then unspecified)
+     */
+    static MemorySegment[] load(Path file, short[][][] moveTables, byte[][] pruneTables, long... mappedLengths) {
+        return load(file, moveTables, new long[0], pruneTables, mappedLengths);
+    }
+
+    /**
+     * Map the move table sections of a cache file read-only and fill the pruning
+     * tables from the sections after them. Each mapped move table is row-major
+     * and little-endian, the layout the segment move backend reads.
+     *
+     * @param moveLengths Expected byte length of each move table section
+     * @return one read-only segment per move table, or null if the file is missing
+     *         or invalid (the pruning table contents are then unspecified)
+     */
+    static MemorySegment[] loadMapped(Path file, long[] moveLengths, byte[][] pruneTables) {
+        return load(file, new short[0][][], moveLengths, pruneTables, new long[0]);
+    }
+
+    /**
+     * Sections in file order: the copied move tables, the mapped move tables, the
+     * copied pruning tables and the mapped sections after them. Returns the
+     * mapped sections in that order.
+     */
+    private static MemorySegment[] load(Path file, short[][][] moveTables, long[] mappedMoveLengths,
+                                        byte[][] pruneTables, long[] mappedLengths) {
+        if (file == null || !Files.isRegularFile(file)) return null;
+
+        // Without mapped sections a confined arena unmaps the file as soon as the
+        // tables are copied; otherwise the mapping lives as long as the JVM
+        boolean copyOnly = mappedMoveLengths.length == 0 && mappedLengths.length == 0;
+        Arena arena = copyOnly ? Arena.ofConfined() : Arena.global();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemorySegment map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            int sections = moveTables.length + mappedMoveLengths.length + pruneTables.length + mappedLengths.length;
+            long[] lengths = new long[sections];
+            boolean[] copied = new boolean[sections];
+            int s = 0;
+            for (short[][] table : moveTables) {
+                copied[s] = true;
+                lengths[s++] = 2L * table.length * table[0].length;
+            }
+            for (long length : mappedMoveLengths) lengths[s++] = length;
+            for (byte[] table : pruneTables) {
+                copied[s] = true;
+                lengths[s++] = table.length;
+            }
+            for (long length : mappedLengths) lengths[s++] = length;
+            long[] offsets = validate(map, lengths, copied);
+            if (offsets == null) return null;
+
+            MemorySegment[] mapped = new MemorySegment[mappedMoveLengths.length + mappedLengths.length];
+            int m = 0;
+            s = 0;
+            for (short[][] table : moveTables) {
+                long position = offsets[s++];
+                for (short[] row : table) {
+                    MemorySegment.copy(map, SHORT, position, row, 0, row.length);
+                    position += 2L * row.length;
+                }
+            }
+            for (int i = 0; i < mappedMoveLengths.length; i++, s++) {
+                mapped[m++] = map.asSlice(offsets[s], lengths[s]);
+            }
+            for (byte[] table : pruneTables) {
+                MemorySegment.copy(map, ValueLayout.JAVA_BYTE, offsets[s++], table, 0, table.length);
+            }
+            for (int i = 0; i < mappedLengths.length; i++, s++) {
+                mapped[m++] = map.asSlice(offsets[s], lengths[s]);
+            }
+            return mapped;
+        } catch (IOException | RuntimeException e) {
+            // A truncated or foreign file is treated like a missing one
+            return null;
+        } finally {
+            if (copyOnly) arena.close();
+        }
+    }
+
+    /**
+     * Check every section of a cache file against its checksum, including the
+     * sections load() and map() serve from the mapping without checking them.
+     *
+     * @param lengths Expected byte length of each section
+     * @return false if the file is missing, doesn't match or any section is damaged
+     */
+    static boolean verify(Path file, long... lengths) {
+        if (file == null || !Files.isRegularFile(file)) return false;
+        try (Arena arena = Arena.ofConfined();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MemorySegment map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), arena);
+            boolean[] all = new boolean[lengths.length];
+            Arrays.fill(all, true);
+            return validate(map, lengths, all) != null;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Check the header and section descriptors of a mapped cache file, and the data
+     * checksums of the sections flagged in 'checked'.
+     *
+     * @return the offset of each section, or null if the file doesn't match
+     */
+    private static long[] validate(MemorySegment map, long[] lengths, boolean[] checked) {
+        long fileSize = map.byteSize();
+        if (fileSize < headerSize(lengths.length)) return null;
+        if (map.get(INT, 0) != MAGIC || map.get(INT, 4) != VERSION || map.get(INT, 8) != lengths.length) {
+            return null;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(map.asSlice(HEADER_SIZE, (long) DESCRIPTOR_SIZE * lengths.length).asByteBuffer());
+        if (crc.getValue() != map.get(LONG, 16)) return null;
+
+        // Validate every section descriptor before touching the data
+        long[] offsets = new long[lengths.length];
+        for (int s = 0; s < lengths.length; s++) {
+            long descriptor = HEADER_SIZE + (long) DESCRIPTOR_SIZE * s;
+            offsets[s] = map.get(LONG, descriptor);
+            long length = map.get(LONG, descriptor + 8);
+            if (length != lengths[s] || offsets[s] % ALIGN != 0 || offsets[s] + length > fileSize) {
+                return null;
+            }
+        }
+
+        for (int s = 0; s < lengths.length; s++) {
+            if (!checked[s]) continue;
+            crc.reset();
+            crc.update(map.asSlice(offsets[s], lengths[s]).asByteBuffer());
+            if (crc.getValue() != map.get(LONG, HEADER_SIZE + (long) DESCRIPTOR_SIZE * s + 16)) return null;
+        }
+        return offsets;
+    }
+
+    /**
+     * Write the tables to the cache file. The file is written under a temporary
+     * name and moved into place atomically, so concurrent readers never observe
+     * a partially written cache. Sections are streamed to the file one at a time,
+     * so large tables aren't duplicated in memory. Failures are ignored: the cache
+     * is best-effort.
+     */
+    static void save(Path file, short[][][] moveTables, byte[][] pruneTables) {
+        if (file == null) return;
+
+        long[] lengths = sectionLengths(moveTables, pruneTables);
+        long[] offsets = new long[lengths.length];
+        long position = align(headerSize(lengths.length));
+        for (int s = 0; s < lengths.length; s++) {
+            offsets[s] = position;
+            position = align(position + lengths[s]);
+        }
+        long fileSize = position;
+
+        Path temp = null;
+        try {
+            Path dir = file.toAbsolutePath().getParent();
+            Files.createDirectories(dir);
+            temp = Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+            try {
+                // createTempFile makes the file private to this user
+                Files.setPosixFilePermissions(temp, SHARED_PERMISSIONS);
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system: keep its default permissions
+            }
+
+            long[] checksums = new long[lengths.length];
+            CRC32C crc = new CRC32C();
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                int s = 0;
+                for (short[][] table : moveTables) {
+                    // One row-major section, written a row at a time
+                    ByteBuffer row = ByteBuffer.allocate(2 * table[0].length).order(ByteOrder.LITTLE_ENDIAN);
+                    position = offsets[s];
+                    crc.reset();
+                    for (short[] values : table) {
+                        row.clear();
+                        for (short value : values) row.putShort(value);
+                        row.flip();
+                        crc.update(row);
+                        row.flip();
+                        position += writeFully(channel, row, position);
+                    }
+                    checksums[s++] = crc.getValue();
+                }
+                for (byte[] table : pruneTables) {
+                    crc.reset();
+                    crc.update(table);
+                    checksums[s] = crc.getValue();
+                    writeFully(channel, ByteBuffer.wrap(table), offsets[s++]);
+                }
+
+                ByteBuffer descriptors = ByteBuffer.allocate(DESCRIPTOR_SIZE * lengths.length).order(ByteOrder.LITTLE_ENDIAN);
+                for (s = 0; s < lengths.length; s++) {
+                    descriptors.putLong(offsets[s]).putLong(lengths[s]).putLong(checksums[s]);
+                }
+                descriptors.flip();
+                crc.reset();
+                crc.update(descriptors);
+                descriptors.flip();
+
+                ByteBuffer header = ByteBuffer.allocate((int) headerSize(lengths.length)).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putInt(lengths.length).putInt(0).putLong(crc.getValue());
+                header.put(descriptors);
+                header.flip();
+                writeFully(channel, header, 0);
+
+                // Pad the last section so the file size is a multiple of the alignment
+                channel.write(ByteBuffer.allocate(1), fileSize - 1);
+            }
+
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            try {
+                if (temp != null) Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Nothing more we can do
+            }
+        }
+    }
+
+    /** Write all remaining bytes of the buffer at the given file position. */
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    /** Byte length of each section: move tables first, then pruning tables. */
+    private static long[] sectionLengths(short[][][] moveTables, byte[][] pruneTables) {
+        long[] lengths = new long[moveTables.length + pruneTables.length];
+        int s = 0;
+        for (short[][] table : moveTables) lengths[s++] = 2L * table.length * table[0].length;
+        for (byte[] table : pruneTables) lengths[s++] = table.length;
+        return lengths;
+    }
+
+    private static long headerSize(int sections) {
+        return HEADER_SIZE + (long) DESCRIPTOR_SIZE * sections;
+    }
+
+    private static long align(long position) {
+        return (position + ALIGN - 1) / ALIGN * ALIGN;
+    }
+}
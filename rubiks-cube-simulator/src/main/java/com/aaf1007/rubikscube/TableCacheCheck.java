@@ -0,0 +1,131 @@
+package com.aaf1007.rubikscube;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Checks of the TableCache file format: random tables saved and loaded back,
+ * copied or mapped, and files with a damaged byte, wrong version or other
+ * section sizes rejected (a damaged mapped section only by verify(), which
+ * loading skips).
+ * Runs in a temporary directory, so the real table cache is left alone.
+ *
+ * usage: java com.aaf1007.rubikscube.TableCacheCheck
+ */
+public class TableCacheCheck {
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(1);
+        short[][][] moveTables = {randomShorts(random, 2187, 18), randomShorts(random, 495, 18)};
+        byte[][] pruneTables = {randomBytes(random, 10_000), randomBytes(random, 5_000)};
+
+        Path dir = Files.createTempDirectory("tablecache-check");
+        try {
+            Path file = dir.resolve("check-v" + TableCache.VERSION + ".bin");
+            TableCache.save(file, moveTables, pruneTables);
+            check(Files.size(file) % TableCache.ALIGN == 0, "file size isn't a multiple of the alignment");
+            try {
+                check(PosixFilePermissions.toString(Files.getPosixFilePermissions(file)).equals("rw-r--r--"),
+                    "file isn't readable by everyone");
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system
+            }
+
+            // Round trip into fresh arrays
+            short[][][] loadedMoves = {new short[2187][18], new short[495][18]};
+            byte[][] loadedPrune = {new byte[10_000], new byte[5_000]};
+            check(TableCache.load(file, loadedMoves, loadedPrune), "valid file rejected");
+            check(Arrays.deepEquals(moveTables, loadedMoves), "move tables differ after loading");
+            check(Arrays.deepEquals(pruneTables, loadedPrune), "pruning tables differ after loading");
+
+            // Trailing sections mapped instead of copied
+            loadedPrune = new byte[][] {new byte[10_000]};
+            MemorySegment[] mapped = TableCache.load(file, loadedMoves, loadedPrune, 5_000);
+            check(mapped != null && mapped.length == 1 && mapped[0].isReadOnly(), "section not mapped read-only");
+            check(Arrays.equals(mapped[0].toArray(ValueLayout.JAVA_BYTE), pruneTables[1]), "mapped section differs");
+            long[] lengths = {2L * 2187 * 18, 2L * 495 * 18, 10_000, 5_000};
+            check(TableCache.verify(file, lengths), "verify rejects a valid file");
+
+            // Move tables mapped row-major and little-endian, pruning tables copied
+            loadedPrune = new byte[][] {new byte[10_000], new byte[5_000]};
+            mapped = TableCache.loadMapped(file, Arrays.copyOf(lengths, 2), loadedPrune);
+            check(mapped != null && mapped.length == 2, "move tables not mapped");
+            check(Arrays.deepEquals(pruneTables, loadedPrune), "pruning tables differ after loading with mapped moves");
+            ValueLayout.OfShort littleEndian = ValueLayout.JAVA_SHORT.withOrder(ByteOrder.LITTLE_ENDIAN);
+            for (int t = 0; t < 2; t++) {
+                for (int row = 0; row < moveTables[t].length; row++) {
+                    for (int move = 0; move < 18; move++) {
+                        check(mapped[t].getAtIndex(littleEndian, row * 18L + move) == moveTables[t][row][move],
+                            "mapped move table " + t + " differs at [" + row + "][" + move + "]");
+                    }
+                }
+            }
+
+            // Sizes that don't match the file
+            check(!TableCache.load(file, loadedMoves, new byte[][] {new byte[10_000], new byte[5_001]}),
+                "file with other section sizes accepted");
+            check(!TableCache.load(file, loadedMoves, new byte[][] {new byte[10_000]}),
+                "file with another section count accepted");
+
+            byte[] bytes = Files.readAllBytes(file);
+            checkRejected(file, bytes, bytes.length - TableCache.ALIGN + 10, "damaged section data");
+            checkRejected(file, bytes, 4, "another format version");
+            checkRejected(file, bytes, 16, "damaged descriptor checksum");
+            checkRejected(file, bytes, 24 + 3 * 24 + 16, "damaged section checksum");
+            checkRejected(file, bytes, 0, "damaged magic number");
+
+            // A damaged mapped section isn't read on loading, but verify finds it
+            byte[] damaged = bytes.clone();
+            damaged[damaged.length - TableCache.ALIGN + 10] ^= 1;
+            Files.write(file, damaged);
+            check(TableCache.load(file, loadedMoves, new byte[][] {new byte[10_000]}, 5_000) != null,
+                "mapped section checksummed on loading");
+            check(!TableCache.verify(file, lengths), "verify accepts a damaged section");
+
+            Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+            check(!TableCache.load(file, loadedMoves, pruneTables), "truncated file accepted");
+            check(!TableCache.load(dir.resolve("missing.bin"), loadedMoves, pruneTables), "missing file accepted");
+        } finally {
+            try (Stream<Path> files = Files.walk(dir)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) Files.delete(path);
+            }
+        }
+        System.out.println("TableCache: all checks passed");
+    }
+
+    /** Flip a bit of the file at 'offset' and check that loading rejects it. */
+    private static void checkRejected(Path file, byte[] bytes, int offset, String what) throws Exception {
+        byte[] damaged = bytes.clone();
+        damaged[offset] ^= 1;
+        Files.write(file, damaged);
+        short[][][] moveTables = {new short[2187][18], new short[495][18]};
+        byte[][] pruneTables = {new byte[10_000], new byte[5_000]};
+        check(!TableCache.load(file, moveTables, pruneTables), "file with " + what + " accepted");
+    }
+
+    private static short[][] randomShorts(Random random, int rows, int columns) {
+        short[][] table = new short[rows][columns];
+        for (short[] row : table) {
+            for (int i = 0; i < columns; i++) row[i] = (short) random.nextInt();
+        }
+        return table;
+    }
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] table = new byte[length];
+        random.nextBytes(table);
+        return table;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException(message);
+    }
+}
@@ -1,5 +1,15 @@
 package com.aaf1007.rubikscube;
 
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntBinaryOperator;
+
 /**
  * Precomputed lookup tables for the two-phase Rubik's Cube solving algorithm.
  *
@@ -12,7 +22,16 @@ package com.aaf1007.rubikscube;
  *    optimal solutions. Built via backward BFS from the solved state.
  *    Format: pruneTable[coord] = minMovesToSolve
  *
- * All tables are computed once when the class loads (takes ~1-2 seconds).
+ * The tables are split into two groups that are loaded independently (see Group):
+ * loading the class itself is cheap, and each group is computed the first time it
+ * is needed (takes ~1-2 seconds), or ahead of time on a background thread with
+ * loadInBackground(). Computed tables are written to a persistent cache file
+ * (see TableCache); later runs memory-map the cache instead of rebuilding, which
+ * makes loading near-instant.
+ *
+ * Which pruning tables exist depends on the heuristic tier (see HeuristicTier);
+ * tables of higher tiers are null when not loaded. The short[][] move tables are
+ * null with the segment move backend, which maps them from the cache instead.
  */
 public class Tables {
 
@@ -28,16 +47,26 @@ public class Tables {
     public static final int N_UR_UL = 1320;        // Helper: tracks edges UR, UF, UL for efficient merge
     public static final int N_UB_DF = 1320;        // Helper: tracks edges UB, DR, DF for efficient merge
     public static final int N_MOVES = 18;          // 6 faces * 3 turn types (90°, 180°, 270°)
+    public static final int N_FLIPSLICE_CLASS = 64430; // Flip x slice position, reduced by the 16 UD symmetries
+
+    // Move table storage read by the search (-Drubikscube.moveTables=array|segment)
+    // "array" reads the jagged arrays below; "segment" reads row-major off-heap
+    // tables mapped from the cache file (see SegmentMoveTables), and the arrays
+    // below are null. Everything else reads the move tables through this backend.
+    public static final MoveTableBackend moves = "segment".equals(System.getProperty("rubikscube.moveTables"))
+        ? new SegmentMoveTables()
+        : new ArrayMoveTables();
+    private static final boolean MOVE_ARRAYS = moves instanceof ArrayMoveTables;
 
     // Move Tables: [currentCoordinate][move] -> newCoordinate
     // Move encoding: U=0,1,2, R=3,4,5, F=6,7,8, D=9,10,11, L=12,13,14, B=15,16,17
-    public static short[][] twistMove = new short[N_TWIST][N_MOVES];
-    public static short[][] flipMove = new short[N_FLIP][N_MOVES];
-    public static short[][] sliceMove = new short[N_SLICE_PERM][N_MOVES];
-    public static short[][] cornerPermMove = new short[N_CORNER_PERM][N_MOVES];
-    public static short[][] udEdgePermMove = new short[N_UD_EDGE_PERM][N_MOVES];
-    public static short[][] urToUlMove = new short[N_UR_UL][N_MOVES];
-    public static short[][] ubToDfMove = new short[N_UB_DF][N_MOVES];
+    public static short[][] twistMove = MOVE_ARRAYS ? new short[N_TWIST][N_MOVES] : null;
+    public static short[][] flipMove = MOVE_ARRAYS ? new short[N_FLIP][N_MOVES] : null;
+    public static short[][] sliceMove = MOVE_ARRAYS ? new short[N_SLICE_PERM][N_MOVES] : null;
+    public static short[][] cornerPermMove = MOVE_ARRAYS ? new short[N_CORNER_PERM][N_MOVES] : null;
+    public static short[][] udEdgePermMove = MOVE_ARRAYS ? new short[N_UD_EDGE_PERM][N_MOVES] : null;
+    public static short[][] urToUlMove = MOVE_ARRAYS ? new short[N_UR_UL][N_MOVES] : null;
+    public static short[][] ubToDfMove = MOVE_ARRAYS ? new short[N_UB_DF][N_MOVES] : null;
 
     // Parity table: quarter turns flip parity, half turns preserve it
     // parityMove[currentParity][move] = newParity
@@ -48,33 +77,231 @@ public class Tables {
 
     // Merge table: combines URtoUL and UBtoDF into full UD edge permutation
     // This avoids expensive computation during phase 2 setup
-    public static short[][] mergeURtoULandUBtoDF = new short[336][336];
+    public static short[][] mergeURtoULandUBtoDF = MOVE_ARRAYS ? new short[336][336] : null;
 
     // Pruning Tables: store minimum moves to solve each coordinate
     // Packed as Half-bytes (4 bits each) to save memory - 2 values per byte
 
+    // Encoding of the four slice pruning tables below (-Drubikscube.pruning=nibble|mod3)
+    // "mod3" stores each distance mod 3 in 2 bits - 4 values per byte, half the memory.
+    // One move changes a distance by at most 1, so the search recovers the exact
+    // distance from the parent's (see getPruning(table, index, parentDistance)).
+    public static final boolean PRUNING_MOD3 = "mod3".equals(System.getProperty("rubikscube.pruning"));
+
     // Phase 1 pruning: heuristic = max(sliceTwistPrune, sliceFlipPrune)
-    public static byte[] sliceTwistPrune = new byte[N_SLICE1 * N_TWIST / 2 + 1];
-    public static byte[] sliceFlipPrune = new byte[N_SLICE1 * N_FLIP / 2];
+    public static byte[] sliceTwistPrune = new byte[pruningBytes(N_SLICE1 * N_TWIST)];
+    public static byte[] sliceFlipPrune = new byte[pruningBytes(N_SLICE1 * N_FLIP)];
 
     // Phase 2 pruning: heuristic = max(sliceCornerPrune, sliceEdgePrune)
     // These include parity in the index for more accurate pruning
-    public static byte[] sliceCornerPrune = new byte[N_SLICE2 * N_CORNER_PERM * N_PARITY / 2];
-    public static byte[] sliceEdgePrune = new byte[N_SLICE2 * N_UD_EDGE_PERM * N_PARITY / 2];
+    public static byte[] sliceCornerPrune = new byte[pruningBytes(N_SLICE2 * N_CORNER_PERM * N_PARITY)];
+    public static byte[] sliceEdgePrune = new byte[pruningBytes(N_SLICE2 * N_UD_EDGE_PERM * N_PARITY)];
+
+    // Index transitions of the tables above, used to build them and, with the mod3
+    // encoding, to walk down to the solved state for the exact distance of a start position
+    private static final Phase1Index SLICE_TWIST_INDEX = new Phase1Index(moves::twist, moves);
+    private static final Phase1Index SLICE_FLIP_INDEX = new Phase1Index(moves::flip, moves);
+    private static final Phase2Index SLICE_CORNER_INDEX = new Phase2Index(moves::cornerPerm, moves, parityMove);
+    private static final Phase2Index SLICE_EDGE_INDEX = new Phase2Index(moves::udEdgePerm, moves, parityMove);
+
+    // Pruning table set, chosen from the available memory or -Drubikscube.tier
+    public static final HeuristicTier TIER = HeuristicTier.select();
+
+    // Symmetry-reduced phase 1 pruning (MEDIUM tier and up)
+    // Flip and slice position are combined into one coordinate and reduced by the 16
+    // symmetries that preserve the UD axis. The twist, conjugated into the frame of
+    // the class representative, is then combined with it in a single table that
+    // prunes far better than the max of sliceTwistPrune and sliceFlipPrune.
+    // Index = N_TWIST * flipSliceClass + twistConj[twist][flipSliceSym] (~70 MB). Read
+    // from the memory-mapped cache file, or from a heap array if the cache is disabled.
+    public static final boolean SYM_PHASE1 = TIER.compareTo(HeuristicTier.MEDIUM) >= 0;
+
+    // [slicePos][flip] -> class index (read as unsigned)
+    public static short[][] flipSliceClass = SYM_PHASE1 ? new short[N_SLICE1][N_FLIP] : null;
+    // [N_FLIP * slicePos + flip] -> symmetry s such that the class representative is S * x * S^-1
+    public static byte[] flipSliceSym = SYM_PHASE1 ? new byte[N_SLICE1 * N_FLIP] : null;
+    // [twist][s] -> twist of S * x * S^-1
+    public static short[][] twistConj = SYM_PHASE1 ? new short[N_TWIST][Symmetry.N_SYM_D4H] : null;
+    public static MemorySegment flipSliceTwistPrune;
+
+    // Corner x UD edge permutation phase 2 pruning (LARGE tier)
+    // Index = N_UD_EDGE_PERM * cornerPerm + udEdgePerm (~200 MB). Read from the
+    // memory-mapped cache file, or from a heap array if the cache is disabled.
+    public static final boolean CORNER_EDGE_PHASE2 = TIER == HeuristicTier.LARGE;
+    public static MemorySegment cornerEdgePrune;
+
+    /**
+     * Independently loadable groups of tables.
+     * PHASE2 needs the slice move table of PHASE1, so loading it loads PHASE1 first.
+     */
+    public enum Group {
+        /** Twist, flip and slice move tables and the phase 1 pruning tables. */
+        PHASE1,
+        /** Permutation move tables, the merge table and the phase 2 pruning tables. */
+        PHASE2
+    }
+
+    // Completed when the group's tables are filled; claimed by the first thread that loads them
+    private static final CompletableFuture<Void> phase1Ready = new CompletableFuture<>();
+    private static final CompletableFuture<Void> phase2Ready = new CompletableFuture<>();
+    private static final AtomicBoolean phase1Claimed = new AtomicBoolean();
+    private static final AtomicBoolean phase2Claimed = new AtomicBoolean();
+    private static final AtomicBoolean backgroundStarted = new AtomicBoolean();
+
+    // Loading progress, counted in tables: one step per move table group and per pruning table
+    private static final int TOTAL_STEPS = 6 + (SYM_PHASE1 ? 1 : 0) + (CORNER_EDGE_PHASE2 ? 1 : 0);
+    private static final AtomicInteger completedSteps = new AtomicInteger();
+
+    /**
+     * Start loading both groups on a background daemon thread, phase 1 first.
+     * Meant to be called at application start, so the tables are usually ready by
+     * the time the first solve needs them. Calling it again has no effect.
+     */
+    public static void loadInBackground() {
+        if (!backgroundStarted.compareAndSet(false, true)) return;
+
+        Thread loader = new Thread(() -> {
+            try {
+                await(Group.PHASE1);
+                await(Group.PHASE2);
+            } catch (RuntimeException | Error e) {
+                // Already recorded in the group's future; solves will rethrow it
+            }
+        }, "rubikscube-tables");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Block until the tables of a group are loaded. If no other thread is loading
+     * the group yet, it is loaded on the calling thread.
+     */
+    public static void await(Group group) {
+        CompletableFuture<Void> ready = group == Group.PHASE1 ? phase1Ready : phase2Ready;
+        if (ready.isDone() && !ready.isCompletedExceptionally()) return;
+
+        AtomicBoolean claimed = group == Group.PHASE1 ? phase1Claimed : phase2Claimed;
+        if (claimed.compareAndSet(false, true)) {
+            try {
+                if (group == Group.PHASE1) {
+                    loadPhase1();
+                } else {
+                    await(Group.PHASE1);
+                    loadPhase2();
+                }
+                ready.complete(null);
+            } catch (RuntimeException | Error e) {
+                ready.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        try {
+            ready.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            if (e.getCause() instanceof Error cause) throw cause;
+            throw e;
+        }
+    }
+
+    /** Whether the tables of a group are loaded, so using them won't block. */
+    public static boolean isReady(Group group) {
+        CompletableFuture<Void> ready = group == Group.PHASE1 ? phase1Ready : phase2Ready;
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    /**
+     * A future completed when the tables of a group are loaded. This doesn't start
+     * loading; use loadInBackground() or await() for that.
+     */
+    public static CompletableFuture<Void> whenReady(Group group) {
+        return (group == Group.PHASE1 ? phase1Ready : phase2Ready).copy();
+    }
+
+    /** Fraction (0-1) of all tables that are loaded, for progress displays. */
+    public static double progress() {
+        return (double) completedSteps.get() / TOTAL_STEPS;
+    }
+
+    /**
+     * Loads the phase 1 tables from the cache file, or builds them and writes the
+     * cache if it's missing or stale.
+     */
+    private static void loadPhase1() {
+        SegmentMoveTables segments = moves instanceof SegmentMoveTables s ? s : null;
+        byte[][] pruneTables = {sliceTwistPrune, sliceFlipPrune};
+
+        Path cacheFile = TableCache.path(PRUNING_MOD3 ? "phase1-mod3" : "phase1");
+        if (segments != null
+                ? segments.map(Group.PHASE1, cacheFile, pruneTables)
+                : TableCache.load(cacheFile, new short[][][] {twistMove, flipMove, sliceMove}, pruneTables)) {
+            completedSteps.addAndGet(3);
+        } else {
+            // The segment backend only needs arrays to build the tables in
+            short[][][] moveTables = segments != null
+                ? new short[][][] {new short[N_TWIST][N_MOVES], new short[N_FLIP][N_MOVES],
+                                   new short[N_SLICE_PERM][N_MOVES]}
+                : new short[][][] {twistMove, flipMove, sliceMove};
+            initPhase1MoveTables(moveTables[0], moveTables[1], moveTables[2]);
+            if (segments != null) segments.copy(Group.PHASE1, moveTables);
+            completedSteps.incrementAndGet();
+            initPhase1PruningTables();
+            TableCache.save(cacheFile, moveTables, pruneTables);
 
-    // Static block runs once when class is loaded - builds all tables
-    static {
-        initMoveTables();
-        initMergeTable();
-        initPruningTables();
+            // Map the file just written so the arrays and copies can be collected
+            if (segments != null) segments.map(Group.PHASE1, cacheFile, pruneTables);
+        }
+        if (SYM_PHASE1) {
+            initSymPhase1Tables();
+            completedSteps.incrementAndGet();
+        }
+    }
+
+    /**
+     * Loads the phase 2 tables from the cache file, or builds them and writes the
+     * cache if it's missing or stale. Requires the phase 1 tables.
+     */
+    private static void loadPhase2() {
+        SegmentMoveTables segments = moves instanceof SegmentMoveTables s ? s : null;
+        byte[][] pruneTables = {sliceCornerPrune, sliceEdgePrune};
+
+        Path cacheFile = TableCache.path(PRUNING_MOD3 ? "phase2-mod3" : "phase2");
+        if (segments != null
+                ? segments.map(Group.PHASE2, cacheFile, pruneTables)
+                : TableCache.load(cacheFile, new short[][][] {cornerPermMove, udEdgePermMove, urToUlMove, ubToDfMove,
+                                                              mergeURtoULandUBtoDF}, pruneTables)) {
+            completedSteps.addAndGet(3);
+        } else {
+            // The segment backend only needs arrays to build the tables in
+            short[][][] moveTables = segments != null
+                ? new short[][][] {new short[N_CORNER_PERM][N_MOVES], new short[N_UD_EDGE_PERM][N_MOVES],
+                                   new short[N_UR_UL][N_MOVES], new short[N_UB_DF][N_MOVES], new short[336][336]}
+                : new short[][][] {cornerPermMove, udEdgePermMove, urToUlMove, ubToDfMove, mergeURtoULandUBtoDF};
+            initPhase2MoveTables(moveTables[0], moveTables[1], moveTables[2], moveTables[3]);
+            initMergeTable(moveTables[4]);
+            if (segments != null) segments.copy(Group.PHASE2, moveTables);
+            completedSteps.incrementAndGet();
+            initPhase2PruningTables();
+            TableCache.save(cacheFile, moveTables, pruneTables);
+
+            // Map the file just written so the arrays and copies can be collected
+            if (segments != null) segments.map(Group.PHASE2, cacheFile, pruneTables);
+        }
+        if (CORNER_EDGE_PHASE2) {
+            initCornerEdgeTable();
+            completedSteps.incrementAndGet();
+        }
     }
 
     /**
-     * Builds all move tables by simulating each move on each coordinate value.
+     * Builds the phase 1 move tables by simulating each move on each coordinate value.
      * For each coordinate i and face j, applies the move repeatedly (1-3 times)
      * and records the resulting coordinate. The 4th application restores the original.
+     * Fills the given tables, which are the arrays above or, for the segment
+     * backend, temporary ones.
      */
-    private static void initMoveTables() {
+    private static void initPhase1MoveTables(short[][] twistMove, short[][] flipMove, short[][] sliceMove) {
         Cubie cube = new Cubie();
 
         // Twist move table: how corner orientations change with each move
@@ -113,6 +340,15 @@ public class Tables {
             }
         }
 
+    }
+
+    /**
+     * Builds the phase 2 move tables, the same way as initPhase1MoveTables().
+     */
+    private static void initPhase2MoveTables(short[][] cornerPermMove, short[][] udEdgePermMove,
+                                             short[][] urToUlMove, short[][] ubToDfMove) {
+        Cubie cube = new Cubie();
+
         // Corner permutation move table: for phase 2
         for (short i = 0; i < N_CORNER_PERM; i++) {
             cube.setCornerPerm(i);
@@ -166,7 +402,7 @@ public class Tables {
      * full UD edge permutation coordinate. This precomputation avoids expensive
      * merging during the phase 2 search.
      */
-    private static void initMergeTable() {
+    private static void initMergeTable(short[][] mergeURtoULandUBtoDF) {
         for (short i = 0; i < 336; i++) {
             for (short j = 0; j < 336; j++) {
                 mergeURtoULandUBtoDF[i][j] = (short) Cubie.mergeURtoULandUBtoDF(i, j);
@@ -175,128 +411,273 @@ public class Tables {
     }
 
     /**
-     * Builds pruning tables using backward BFS from the solved state.
-     *
-     * Algorithm: Start with solved state (distance 0), then repeatedly find all
-     * states at distance d and mark their neighbors as distance d+1 if unvisited.
-     * Continue until all states are filled.
+     * Builds the phase 1 pruning tables using BFS from the solved state
+     * (see PruningTableBuilder for the search itself).
      *
      * The result is an admissible heuristic: it never overestimates the true
      * distance, so IDA* is guaranteed to find optimal solutions.
      */
-    private static void initPruningTables() {
-        // Initialize all entries to 0x0F (15) meaning "unvisited"
-        for (int i = 0; i < sliceTwistPrune.length; i++) sliceTwistPrune[i] = -1;
-        for (int i = 0; i < sliceFlipPrune.length; i++) sliceFlipPrune[i] = -1;
-        for (int i = 0; i < sliceCornerPrune.length; i++) sliceCornerPrune[i] = -1;
-        for (int i = 0; i < sliceEdgePrune.length; i++) sliceEdgePrune[i] = -1;
-
+    private static void initPhase1PruningTables() {
         // Phase 1: Slice position + Twist pruning table
         // Combined index = N_SLICE1 * twist + slice
-        int depth = 0;
-        setPruning(sliceTwistPrune, 0, (byte) 0);  // Solved state at distance 0
-        int done = 1;
-        while (done < N_SLICE1 * N_TWIST) {
-            for (int i = 0; i < N_SLICE1 * N_TWIST; i++) {
-                int twist = i / N_SLICE1;
-                int slice = i % N_SLICE1;
-                if (getPruning(sliceTwistPrune, i) == depth) {
-                    // This state is at current depth - try all 18 moves
-                    for (int m = 0; m < 18; m++) {
-                        int newSlice = sliceMove[slice * 24][m] / 24;  // Only care about position, not order
-                        int newTwist = twistMove[twist][m];
-                        int idx = N_SLICE1 * newTwist + newSlice;
-                        if (getPruning(sliceTwistPrune, idx) == 0x0F) {  // Unvisited
-                            setPruning(sliceTwistPrune, idx, (byte) (depth + 1));
-                            done++;
-                        }
-                    }
-                }
-            }
-            depth++;
-        }
+        buildPruning("sliceTwistPrune", sliceTwistPrune, N_SLICE1 * N_TWIST, PruningTableBuilder.ALL_MOVES,
+            SLICE_TWIST_INDEX);
+        completedSteps.incrementAndGet();
 
         // Phase 1: Slice position + Flip pruning table
         // Combined index = N_SLICE1 * flip + slice
-        depth = 0;
-        setPruning(sliceFlipPrune, 0, (byte) 0);
-        done = 1;
-        while (done < N_SLICE1 * N_FLIP) {
-            for (int i = 0; i < N_SLICE1 * N_FLIP; i++) {
-                int flip = i / N_SLICE1;
-                int slice = i % N_SLICE1;
-                if (getPruning(sliceFlipPrune, i) == depth) {
-                    for (int m = 0; m < 18; m++) {
-                        int newSlice = sliceMove[slice * 24][m] / 24;
-                        int newFlip = flipMove[flip][m];
-                        int idx = N_SLICE1 * newFlip + newSlice;
-                        if (getPruning(sliceFlipPrune, idx) == 0x0F) {
-                            setPruning(sliceFlipPrune, idx, (byte) (depth + 1));
-                            done++;
-                        }
+        buildPruning("sliceFlipPrune", sliceFlipPrune, N_SLICE1 * N_FLIP, PruningTableBuilder.ALL_MOVES,
+            SLICE_FLIP_INDEX);
+        completedSteps.incrementAndGet();
+    }
+
+    /**
+     * Builds the phase 2 pruning tables, the same way as initPhase1PruningTables().
+     */
+    private static void initPhase2PruningTables() {
+        // Only phase 2 moves are used in phase 2 tables (U, D all turns; R, F, L, B only half turns)
+        int phase2Moves = phase2Moves();
+
+        // Phase 2: Slice permutation + Corner permutation + Parity pruning table
+        // Combined index = (N_SLICE2 * corner + slice) * 2 + parity
+        buildPruning("sliceCornerPrune", sliceCornerPrune, N_SLICE2 * N_CORNER_PERM * N_PARITY, phase2Moves,
+            SLICE_CORNER_INDEX);
+        completedSteps.incrementAndGet();
+
+        // Phase 2: Slice permutation + UD Edge permutation + Parity pruning table
+        buildPruning("sliceEdgePrune", sliceEdgePrune, N_SLICE2 * N_UD_EDGE_PERM * N_PARITY, phase2Moves,
+            SLICE_EDGE_INDEX);
+        completedSteps.incrementAndGet();
+    }
+
+    /**
+     * Builds one of the slice pruning tables in the configured encoding. The BFS
+     * always runs on a nibble table, which is repacked for the mod3 encoding.
+     */
+    private static void buildPruning(String name, byte[] table, int size, int moves,
+                                     PruningTableBuilder.IndexMove move) {
+        if (!PRUNING_MOD3) {
+            PruningTableBuilder.build(name, table, size, moves, move);
+            return;
+        }
+
+        byte[] nibbles = new byte[(size + 1) / 2];
+        PruningTableBuilder.build(name, nibbles, size, moves, move);
+        for (int i = 0; i < size; i++) {
+            setPruningMod3(table, i, getPruning(nibbles, i) % 3);
+        }
+    }
+
+    // The pruning index transitions are records rather than lambdas, so they don't
+    // depend on Tables being initialized: the builder calls them from worker threads,
+    // and a lambda body compiles to a static method of Tables, which would block on
+    // the init lock if a table were ever built from the static initializer. They read
+    // the move tables through the backend (bound method references don't compile to
+    // methods of Tables either), so they work with either storage.
+
+    /** Phase 1 pruning index: N_SLICE1 * coord + slice position. */
+    private record Phase1Index(IntBinaryOperator coordMove, MoveTableBackend moves)
+            implements PruningTableBuilder.IndexMove {
+        @Override
+        public int apply(int i, int m) {
+            int coord = i / N_SLICE1;
+            int slice = i % N_SLICE1;
+            int newSlice = moves.slice(slice * 24, m) / 24;  // Only care about position, not order
+            return N_SLICE1 * coordMove.applyAsInt(coord, m) + newSlice;
+        }
+    }
+
+    /** Phase 2 pruning index: (N_SLICE2 * coord + slice permutation) * 2 + parity. */
+    private record Phase2Index(IntBinaryOperator coordMove, MoveTableBackend moves, short[][] parityMove)
+            implements PruningTableBuilder.IndexMove {
+        @Override
+        public int apply(int i, int m) {
+            // Decode combined index
+            int parity = i % 2;
+            int coord = (i / 2) / N_SLICE2;
+            int slice = (i / 2) % N_SLICE2;
+            return (N_SLICE2 * coordMove.applyAsInt(coord, m) + moves.slice(slice, m)) * 2 + parityMove[parity][m];
+        }
+    }
+
+    /**
+     * Builds (or loads from its own cache file) the symmetry-reduced phase 1 tables.
+     * The class and conjugation tables are copied to the heap; the pruning table is
+     * mapped from the cache, like the corner x edge table (see initCornerEdgeTable).
+     *
+     * 1. Flip x slice classes: every raw (slice, flip) pair is conjugated by the 16
+     *    UD symmetries; the first pair of each orbit becomes the class representative.
+     * 2. Twist conjugation table, so the twist can follow the state into the
+     *    representative's frame.
+     * 3. Sym move table: [class][move] -> (new class, symmetry), computed by moving
+     *    the representative with the raw move tables.
+     * 4. BFS over class x twist. Representatives that are symmetric themselves are
+     *    encoded by several twist values, which are filled together.
+     */
+    private static void initSymPhase1Tables() {
+        short[][][] moveTables = {flipSliceClass, twistConj};
+        byte[][] pruneTables = {flipSliceSym};
+        long pruneBytes = (long) N_FLIPSLICE_CLASS * N_TWIST / 2;
+        Path cacheFile = TableCache.path("phase1-sym");
+        MemorySegment[] mapped = TableCache.load(cacheFile, moveTables, pruneTables, pruneBytes);
+        if (mapped != null) {
+            flipSliceTwistPrune = mapped[0];
+            return;
+        }
+
+        int[] classRep = new int[N_FLIPSLICE_CLASS];        // class -> raw N_FLIP * slice + flip
+        char[] selfSymmetries = new char[N_FLIPSLICE_CLASS]; // class -> bit mask of symmetries fixing it
+        for (short[] row : flipSliceClass) Arrays.fill(row, (short) -1);
+
+        Cubie cube = new Cubie();
+        int classIdx = 0;
+        for (int slice = 0; slice < N_SLICE1; slice++) {
+            cube.setSlice((short) (slice * 24));
+            for (int flip = 0; flip < N_FLIP; flip++) {
+                if (flipSliceClass[slice][flip] != -1) continue;  // Already in a known class
+
+                cube.setFlip((short) flip);
+                int raw = N_FLIP * slice + flip;
+                classRep[classIdx] = raw;
+                for (int s = 0; s < Symmetry.N_SYM_D4H; s++) {
+                    // x = S^-1 * rep * S, so rep = S * x * S^-1
+                    Cubie conj = Symmetry.conjugate(cube, Symmetry.inverse(s));
+                    int newSlice = conj.getSlice() / 24;
+                    int newFlip = conj.getFlip();
+                    if (newSlice == slice && newFlip == flip) selfSymmetries[classIdx] |= (char) (1 << s);
+                    if (flipSliceClass[newSlice][newFlip] == -1) {
+                        flipSliceClass[newSlice][newFlip] = (short) classIdx;
+                        flipSliceSym[N_FLIP * newSlice + newFlip] = (byte) s;
                     }
                 }
+                classIdx++;
             }
-            depth++;
+        }
+        if (classIdx != N_FLIPSLICE_CLASS) {
+            throw new IllegalStateException("Expected " + N_FLIPSLICE_CLASS + " flip-slice classes, found " + classIdx);
         }
 
-        // Phase 2: Slice permutation + Corner permutation + Parity pruning table
-        // Only phase 2 moves are used (U, D all turns; R, F, L, B only half turns)
-        depth = 0;
-        setPruning(sliceCornerPrune, 0, (byte) 0);
-        done = 1;
-        while (done < N_SLICE2 * N_CORNER_PERM * N_PARITY) {
-            for (int i = 0; i < N_SLICE2 * N_CORNER_PERM * N_PARITY; i++) {
-                // Decode combined index
-                int parity = i % 2;
-                int corner = (i / 2) / N_SLICE2;
-                int slice = (i / 2) % N_SLICE2;
-                if (getPruning(sliceCornerPrune, i) == depth) {
-                    for (int m = 0; m < 18; m++) {
-                        if (!isPhase2Move(m)) continue;  // Skip non-phase-2 moves
-
-                        int newSlice = sliceMove[slice][m];
-                        int newCorner = cornerPermMove[corner][m];
-                        int newParity = parityMove[parity][m];
-                        int idx = (N_SLICE2 * newCorner + newSlice) * 2 + newParity;
-                        if (getPruning(sliceCornerPrune, idx) == 0x0F) {
-                            setPruning(sliceCornerPrune, idx, (byte) (depth + 1));
-                            done++;
-                        }
-                    }
-                }
+        cube = new Cubie();
+        for (short t = 0; t < N_TWIST; t++) {
+            cube.setTwist(t);
+            for (int s = 0; s < Symmetry.N_SYM_D4H; s++) {
+                twistConj[t][s] = Symmetry.conjugate(cube, s).getTwist();
             }
-            depth++;
         }
 
-        // Phase 2: Slice permutation + UD Edge permutation + Parity pruning table
-        depth = 0;
-        setPruning(sliceEdgePrune, 0, (byte) 0);
-        done = 1;
-        while (done < N_SLICE2 * N_UD_EDGE_PERM * N_PARITY) {
-            for (int i = 0; i < N_SLICE2 * N_UD_EDGE_PERM * N_PARITY; i++) {
-                int parity = i % 2;
-                int edge = (i / 2) / N_SLICE2;
-                int slice = (i / 2) % N_SLICE2;
-                if (getPruning(sliceEdgePrune, i) == depth) {
-                    for (int m = 0; m < 18; m++) {
-                        if (!isPhase2Move(m)) continue;
-
-                        int newSlice = sliceMove[slice][m];
-                        int newEdge = udEdgePermMove[edge][m];
-                        int newParity = parityMove[parity][m];
-                        int idx = (N_SLICE2 * newEdge + newSlice) * 2 + newParity;
-                        if (getPruning(sliceEdgePrune, idx) == 0x0F) {
-                            setPruning(sliceEdgePrune, idx, (byte) (depth + 1));
-                            done++;
-                        }
-                    }
-                }
+        // Packed as (class << 4) | symmetry
+        int[] flipSliceSymMove = new int[N_FLIPSLICE_CLASS * N_MOVES];
+        for (int c = 0; c < N_FLIPSLICE_CLASS; c++) {
+            int slice = classRep[c] / N_FLIP;
+            int flip = classRep[c] % N_FLIP;
+            for (int m = 0; m < N_MOVES; m++) {
+                int newSlice = moves.slice(slice * 24, m) / 24;
+                int newFlip = moves.flip(flip, m);
+                int newClass = flipSliceClass[newSlice][newFlip] & 0xFFFF;
+                flipSliceSymMove[c * N_MOVES + m] = (newClass << 4) | flipSliceSym[N_FLIP * newSlice + newFlip];
             }
-            depth++;
+        }
+
+        byte[] table = new byte[(int) pruneBytes];
+        PruningTableBuilder.build("flipSliceTwistPrune", table, N_FLIPSLICE_CLASS * N_TWIST,
+            PruningTableBuilder.ALL_MOVES, new SymPhase1Index(flipSliceSymMove, moves, twistConj),
+            new SymPhase1Symmetries(selfSymmetries, twistConj));
+        TableCache.save(cacheFile, moveTables, new byte[][] {flipSliceSym, table});
+
+        // Map the file just written so the heap copy can be collected
+        mapped = TableCache.load(cacheFile, moveTables, pruneTables, pruneBytes);
+        flipSliceTwistPrune = mapped != null ? mapped[0] : MemorySegment.ofArray(table);
+    }
+
+    /** Symmetry-reduced phase 1 index: N_TWIST * flip-slice class + conjugated twist. */
+    private record SymPhase1Index(int[] flipSliceSymMove, MoveTableBackend moves, short[][] twistConj)
+            implements PruningTableBuilder.IndexMove {
+        @Override
+        public int apply(int i, int m) {
+            int packed = flipSliceSymMove[(i / N_TWIST) * N_MOVES + m];
+            int newTwist = twistConj[moves.twist(i % N_TWIST, m)][packed & 15];
+            return N_TWIST * (packed >>> 4) + newTwist;
+        }
+    }
+
+    /** Other twist values that encode the same state for self-symmetric class representatives. */
+    private record SymPhase1Symmetries(char[] selfSymmetries, short[][] twistConj)
+            implements PruningTableBuilder.IndexSymmetries {
+        @Override
+        public int selfSymmetries(int i) {
+            return selfSymmetries[i / N_TWIST] & ~1;
+        }
+
+        @Override
+        public int apply(int i, int sym) {
+            return N_TWIST * (i / N_TWIST) + twistConj[i % N_TWIST][sym];
+        }
+    }
+
+    /**
+     * Phase 1 distance from the symmetry-reduced flip x slice x twist table.
+     * Only available when SYM_PHASE1 is enabled.
+     *
+     * @param twist    Corner orientation coordinate
+     * @param flip     Edge orientation coordinate
+     * @param slicePos E-slice position coordinate (slice / 24)
+     */
+    public static int getSymPhase1Pruning(int twist, int flip, int slicePos) {
+        int flipSlice = flipSliceClass[slicePos][flip] & 0xFFFF;
+        int sym = flipSliceSym[N_FLIP * slicePos + flip];
+        return getPruning(flipSliceTwistPrune, N_TWIST * flipSlice + twistConj[twist][sym]);
+    }
+
+    /**
+     * Maps the corner x UD edge permutation table from its cache file, or builds it
+     * and writes the cache first. The table is built on the heap and only kept
+     * there if it can't be cached.
+     */
+    private static void initCornerEdgeTable() {
+        long bytes = (long) N_CORNER_PERM * N_UD_EDGE_PERM / 2;
+        Path cacheFile = TableCache.path("phase2-large");
+        MemorySegment[] sections = TableCache.map(cacheFile, bytes);
+        if (sections == null) {
+            byte[] table = new byte[(int) bytes];
+            PruningTableBuilder.build("cornerEdgePrune", table, N_CORNER_PERM * N_UD_EDGE_PERM, phase2Moves(),
+                new Phase2CornerEdgeIndex(moves));
+            TableCache.save(cacheFile, new short[0][][], new byte[][] {table});
+
+            // Map the file just written so the heap copy can be collected
+            sections = TableCache.map(cacheFile, bytes);
+            if (sections == null) sections = new MemorySegment[] {MemorySegment.ofArray(table)};
+        }
+        cornerEdgePrune = sections[0];
+    }
+
+    /** Phase 2 corner x edge pruning index: N_UD_EDGE_PERM * corner permutation + UD edge permutation. */
+    private record Phase2CornerEdgeIndex(MoveTableBackend moves) implements PruningTableBuilder.IndexMove {
+        @Override
+        public int apply(int i, int m) {
+            int corner = i / N_UD_EDGE_PERM;
+            int edge = i % N_UD_EDGE_PERM;
+            return N_UD_EDGE_PERM * moves.cornerPerm(corner, m) + moves.udEdgePerm(edge, m);
         }
     }
 
+    /**
+     * Phase 2 distance from the corner x UD edge permutation table.
+     * Only available when CORNER_EDGE_PHASE2 is enabled.
+     */
+    public static int getCornerEdgePruning(int cornerPerm, int udEdgePerm) {
+        int index = N_UD_EDGE_PERM * cornerPerm + udEdgePerm;
+        return getPruning(cornerEdgePrune, index);
+    }
+
+    /** Bit mask of the moves allowed in phase 2. */
+    private static int phase2Moves() {
+        int mask = 0;
+        for (int m = 0; m < N_MOVES; m++) {
+            if (isPhase2Move(m)) mask |= 1 << m;
+        }
+        return mask;
+    }
+
     /**
      * Check if a move is valid for phase 2.
      * Phase 2 only allows moves that preserve the G1 subgroup:
@@ -317,6 +698,98 @@ public class Tables {
         }
     }
 
+    /** Size in bytes of a slice pruning table with the given number of entries. */
+    private static int pruningBytes(int entries) {
+        return PRUNING_MOD3 ? (entries + 3) / 4 : (entries + 1) / 2;
+    }
+
+    /**
+     * Exact phase 1 distance from sliceTwistPrune, for the start of a search.
+     * With the mod3 encoding this walks the table down to the solved state.
+     */
+    public static int getSliceTwistPruning(int twist, int slicePos) {
+        return exactPruning(sliceTwistPrune, N_SLICE1 * twist + slicePos, PruningTableBuilder.ALL_MOVES, SLICE_TWIST_INDEX);
+    }
+
+    /** Exact phase 1 distance from sliceFlipPrune, for the start of a search. */
+    public static int getSliceFlipPruning(int flip, int slicePos) {
+        return exactPruning(sliceFlipPrune, N_SLICE1 * flip + slicePos, PruningTableBuilder.ALL_MOVES, SLICE_FLIP_INDEX);
+    }
+
+    /** Exact phase 2 distance from sliceCornerPrune, for the start of phase 2. */
+    public static int getSliceCornerPruning(int cornerPerm, int slicePerm, int parity) {
+        return exactPruning(sliceCornerPrune, (N_SLICE2 * cornerPerm + slicePerm) * 2 + parity, phase2Moves(),
+            SLICE_CORNER_INDEX);
+    }
+
+    /** Exact phase 2 distance from sliceEdgePrune, for the start of phase 2. */
+    public static int getSliceEdgePruning(int udEdgePerm, int slicePerm, int parity) {
+        return exactPruning(sliceEdgePrune, (N_SLICE2 * udEdgePerm + slicePerm) * 2 + parity, phase2Moves(),
+            SLICE_EDGE_INDEX);
+    }
+
+    /**
+     * Distance of an index in a slice pruning table without any parent to start from.
+     * Every index other than the solved state (0) has a neighbor one move closer,
+     * and with the mod3 encoding that neighbor is the one whose value is one less
+     * mod 3, so following those neighbors and counting the moves gives the distance.
+     * No table is built deeper than PruningTableBuilder.MAX_DEPTH, so a walk that
+     * gets longer than that started from an index the table never reached.
+     *
+     * @throws IllegalArgumentException if the index doesn't lead to the solved state
+     */
+    private static int exactPruning(byte[] table, int index, int moves, PruningTableBuilder.IndexMove move) {
+        if (!PRUNING_MOD3) return getPruning(table, index);
+
+        int start = index;
+        int distance = 0;
+        while (index != 0) {
+            if (distance == PruningTableBuilder.MAX_DEPTH) {
+                throw new IllegalArgumentException("Pruning table index " + start
+                    + " isn't within " + PruningTableBuilder.MAX_DEPTH + " moves of the solved state");
+            }
+            int closer = (getPruningMod3(table, index) + 2) % 3;
+            for (int m = 0; m < N_MOVES; m++) {
+                if ((moves & (1 << m)) == 0) continue;
+
+                int next = move.apply(index, m);
+                if (getPruningMod3(table, next) == closer) {
+                    index = next;
+                    break;
+                }
+            }
+            distance++;
+        }
+        return distance;
+    }
+
+    /**
+     * Exact distance of an entry in a slice pruning table that is one move away from
+     * an entry at parentDistance. With the nibble encoding this is just the stored
+     * value; with mod3 the stored value selects parentDistance - 1, + 0 or + 1.
+     */
+    public static int getPruning(byte[] table, int index, int parentDistance) {
+        if (!PRUNING_MOD3) return getPruning(table, index);
+
+        // (value - parent) mod 3: 0 = same distance, 1 = one further, 2 = one closer
+        int delta = (getPruningMod3(table, index) - parentDistance % 3 + 3) % 3;
+        return delta == 2 ? parentDistance - 1 : parentDistance + delta;
+    }
+
+    /**
+     * Store a distance mod 3 (0-2) at the given index using 2-bit packing,
+     * four values per byte with the lowest index in the lowest bits.
+     */
+    public static void setPruningMod3(byte[] table, int index, int value) {
+        int shift = (index & 3) << 1;
+        table[index >> 2] = (byte) ((table[index >> 2] & ~(3 << shift)) | ((value & 3) << shift));
+    }
+
+    /** Retrieve a distance mod 3 (0-2) from the given index. */
+    public static int getPruningMod3(byte[] table, int index) {
+        return (table[index >> 2] >>> ((index & 3) << 1)) & 3;
+    }
+
     /**
      * Store a pruning value (0-15) at the given index using Half-byte packing.
      * Two values are stored per byte to save memory:
@@ -333,6 +806,14 @@ public class Tables {
         }
     }
 
+    /**
+     * Retrieve a pruning value (0-15) from the given index of a nibble-packed table
+     * in a memory segment (the tables mapped from the cache), packed like the arrays.
+     */
+    public static int getPruning(MemorySegment table, long index) {
+        return (table.get(ValueLayout.JAVA_BYTE, index >> 1) >>> ((index & 1) << 2)) & 0x0F;
+    }
+
     /**
      * Retrieve a pruning value (0-15) from the given index.
      * Extracts the appropriate Half-byte based on whether index is even or odd.
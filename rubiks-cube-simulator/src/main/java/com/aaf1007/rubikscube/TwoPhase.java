@@ -1,5 +1,16 @@
 package com.aaf1007.rubikscube;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Two-phase algorithm implementation for solving Rubik's Cube using IDA* search
  *
@@ -14,37 +25,50 @@ package com.aaf1007.rubikscube;
  */
 public class TwoPhase {
 
-    // faceIndex[i] = which face (0-5 for U,R,F,D,L,B)
-    // turnCount[i] = turn amount (1,2,3 for 90°,180°,270°)
-    static int[] faceIndex = new int[31];
-    static int[] turnCount = new int[31];
-
-    // Phase 1 coordinates at each search depth
-    // These track corner orientation, edge orientation, and E-slice edge positions
-    static int[] edgeOrient = new int[31];      // Edge orientation coordinate
-    static int[] cornerOrient = new int[31];     // Corner orientation coordinate
-    static int[] slicePos = new int[31];     // E-slice edge position coordinate (just position, /24)
-
-    // Phase 2 coordinates at each search depth
-    static int[] parity = new int[31];      // Permutation parity (0 or 1)
-    static int[] cornerPerm = new int[31];  // Corner permutation coordinate
-    static int[] slicePerm = new int[31];   // Full slice coordinate (position + order)
-    static int[] urToUl = new int[31];      // Helper: edges UR, UF, UL
-    static int[] ubToDf = new int[31];      // Helper: edges UB, DR, DF
-    static int[] udEdgePerm = new int[31];  // UD edge permutation (merged from helpers)
-
-    // IDA* heuristic: minimum moves estimated to reach goal from each search depth
-    static int[] minDistPhase1 = new int[31];
-    static int[] minDistPhase2 = new int[31];
+    // One reusable context per thread for the static solve(cube, maxDepth, timeOut)
+    private static final ThreadLocal<SolveContext> CONTEXTS = ThreadLocal.withInitial(SolveContext::new);
+
+    // Number of phase 1 moves fixed per task of a parallel search (-Drubikscube.splitDepth=1|2)
+    private static final int SPLIT_DEPTH =
+        Math.max(1, Math.min(2, Integer.getInteger("rubikscube.splitDepth", 2)));
+
+    // PREFIXES[n] = all n-move sequences the search can generate, as {face, turnCount}
+    // pairs: 1, 18 and 243 sequences
+    private static final int[][][] PREFIXES = new int[SPLIT_DEPTH + 1][][];
+
+    static {
+        PREFIXES[0] = new int[][] {{}};
+        for (int n = 1; n <= SPLIT_DEPTH; n++) {
+            PREFIXES[n] = extendPrefixes(PREFIXES[n - 1]);
+        }
+    }
+
+    // Search nodes (phase 1 and phase 2) between checks of the deadline. Checking the
+    // clock is far more expensive than a node; the stop flag is still checked at every node.
+    private static final int CHECK_INTERVAL = 1024;
+
+    // phase2 result when the search was stopped before it finished
+    private static final int STOPPED = -2;
+
+    // Symmetries that relabel the UD axis as itself, RL and FB: 1, ROT_URF3 and ROT_URF3^2
+    private static final int[] RACE_SYMMETRIES = {0, 16, 32};
 
     /**
      * Convert the move sequence into a solution string.
      * CCW moves -> U' becomes UUU and etc...
+     *
+     * Moves found in a relabelled frame (see solveRacing) are mapped back: conjugated
+     * by the inverse symmetry, and for an inverse cube reversed with every turn inverted.
      */
-    static String solutionToString(int length) {
+    static String solutionToString(SolveContext ctx, int length) {
         StringBuilder solution = new StringBuilder();
         for (int i = 0; i < length; i++) {
-            String face = switch (faceIndex[i]) {
+            int j = ctx.inverse ? length - 1 - i : i;
+            int move = 3 * ctx.faceIndex[j] + ctx.turnCount[j] - 1;
+            if (ctx.symmetry != 0) move = Symmetry.conjugateMove(move, Symmetry.inverse(ctx.symmetry));
+            int turns = ctx.inverse ? 3 - move % 3 : move % 3 + 1;
+
+            String face = switch (move / 3) {
                 case 0 -> "U";
                 case 1 -> "R";
                 case 2 -> "F";
@@ -54,7 +78,7 @@ public class TwoPhase {
                 default -> "";
             };
             // Repeat face letter according to turn amount
-            for (int j = 0; j < turnCount[i]; j++) {
+            for (int t = 0; t < turns; t++) {
                 solution.append(face);
             }
         }
@@ -63,6 +87,8 @@ public class TwoPhase {
 
     /**
      * Solve the cube using the two-phase algorithm.
+     * Safe to call from several threads at once: each thread searches with its own
+     * SolveContext.
      *
      * @param cube     The cube to solve (as piece representation)
      * @param maxDepth Max total solution length to search for
@@ -70,107 +96,581 @@ public class TwoPhase {
      * @return Solution string, or "Error N" if solving fails
      */
     public static String solve(Cubie cube, int maxDepth, long timeOut) {
-        int result;
+        return solve(cube, maxDepth, timeOut, CONTEXTS.get());
+    }
 
-        // Validate the cube is solvable
-        if ((result = cube.verify()) != 0)
-            return "Error " + Math.abs(result);
+    /**
+     * Solve the cube using the two-phase algorithm, keeping all search state in the
+     * given context. The context must not be used by another solve at the same time.
+     *
+     * @param cube     The cube to solve (as piece representation)
+     * @param maxDepth Max total solution length to search for
+     * @param timeOut  Timeout in seconds (shifted left 10 bits for milliseconds)
+     * @param ctx      Search state, reused across solves
+     * @return Solution string, or "Error N" if solving fails
+     */
+    public static String solve(Cubie cube, int maxDepth, long timeOut, SolveContext ctx) {
+        return search(cube, ctx, new Search(maxDepth, timeOut, null, null));
+    }
 
-        // Extract all coordinates from the input cube
-        // These form the starting point (depth 0) for the search
-        edgeOrient[0] = cube.getFlip();
-        cornerOrient[0] = cube.getTwist();
-        parity[0] = cube.cornerParity();
-        int fullSlice = cube.getSlice();
-        slicePos[0] = fullSlice / 24;
-        slicePerm[0] = fullSlice;
-        cornerPerm[0] = cube.getCornerPerm();
-        urToUl[0] = cube.getURtoUL();
-        ubToDf[0] = cube.getUBtoDF();
+    /**
+     * Anytime version of solve: after the first solution, keeps searching with the
+     * total length bound set below the best solution so far, as in Kociemba's
+     * original algorithm, and reports every improvement to the listener. When the
+     * time runs out the best solution found is returned instead of "Error 8".
+     *
+     * The timeout sets the latency; the listener can stop the search early once a
+     * solution is short enough. If the search completes, the result is the
+     * shortest solution two-phase can find within maxDepth.
+     *
+     * @param cube     The cube to solve (as piece representation)
+     * @param maxDepth Max total solution length to search for
+     * @param timeOut  Time budget in seconds (shifted left 10 bits for milliseconds)
+     * @param listener Receives each improved solution, may be null
+     * @return Best solution string, or "Error N" if no solution was found
+     */
+    public static String solveAnytime(Cubie cube, int maxDepth, long timeOut, SolutionListener listener) {
+        return solveAnytime(cube, maxDepth, timeOut, CONTEXTS.get(), listener);
+    }
 
-        long startTime = System.currentTimeMillis();
+    /**
+     * Anytime solve, keeping all search state in the given context.
+     * See solveAnytime(cube, maxDepth, timeOut, listener).
+     */
+    public static String solveAnytime(Cubie cube, int maxDepth, long timeOut, SolveContext ctx,
+                                      SolutionListener listener) {
+        return search(cube, ctx, new Search(maxDepth, timeOut,
+            listener != null ? listener : (solution, length) -> true, null));
+    }
 
-        // IDA* outer loop: try increasing depth limits until solution found
-        int depthPhase1 = 1;
-        while (depthPhase1 <= maxDepth) {
+    /**
+     * Solve the cube on the common ForkJoinPool without blocking the caller.
+     * See solveAsync(cube, maxDepth, timeOut, executor, listener, progress).
+     */
+    public static CompletableFuture<String> solveAsync(Cubie cube, int maxDepth, long timeOut) {
+        return solveAsync(cube, maxDepth, timeOut, ForkJoinPool.commonPool(), null, null);
+    }
 
-            // Initialize search at depth 0
-            int depth = 0;
-            faceIndex[0] = 0;
-            turnCount[0] = 1;
+    /**
+     * Solve the cube on a thread of the given executor, returning a future for the
+     * result instead of blocking.
+     *
+     * Completing the future in any way ends the search: cancel(), complete(), or
+     * a timeout set with orTimeout() stop it at the next node. Without a listener
+     * the future completes with the first solution. With one, the search keeps
+     * improving as in solveAnytime and completes with the best solution when the
+     * time runs out or the listener stops it; the future can also be completed
+     * early from the listener, e.g. once a solution is short enough.
+     *
+     * @param cube     The cube to solve; copied, so the caller may reuse it
+     * @param maxDepth Max total solution length to search for
+     * @param timeOut  Timeout in seconds (shifted left 10 bits for milliseconds)
+     * @param executor Runs the search; it occupies one thread until it ends
+     * @param listener null for the first solution, otherwise receives each improved solution
+     * @param progress Receives progress after every phase 1 depth, may be null
+     * @return Future for the solution string, or "Error N" if solving fails
+     */
+    public static CompletableFuture<String> solveAsync(Cubie cube, int maxDepth, long timeOut, Executor executor,
+                                                       SolutionListener listener, SolveProgressListener progress) {
+        Cubie copy = new Cubie(cube);
+        Search search = new Search(maxDepth, timeOut, listener, progress);
+        CompletableFuture<String> future = new CompletableFuture<>();
+        future.whenComplete((solution, failure) -> search.cancel());
+
+        executor.execute(() -> {
+            if (future.isDone()) return;  // Cancelled before it started
+            try {
+                future.complete(search(copy, CONTEXTS.get(), search));
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
 
-            // DFS search at current depth limit
-            while (depth >= 0) {
+    /**
+     * Solve the cube with the phase 1 search tree split across the common
+     * ForkJoinPool. Returns the first solution any worker finds, which may differ
+     * from the one solve() returns.
+     */
+    public static String solveParallel(Cubie cube, int maxDepth, long timeOut) {
+        return solveParallel(cube, maxDepth, timeOut, ForkJoinPool.commonPool(), null);
+    }
 
-                // Check timeout
-                if (System.currentTimeMillis() - startTime > timeOut << 10) {
-                    return "Error 8";
-                }
+    /**
+     * Solve the cube with the phase 1 search tree split across a pool of workers.
+     *
+     * Every phase 1 depth limit is searched by splitting the tree after its first
+     * SPLIT_DEPTH moves (18 prefixes for one move, 243 for two) and searching the
+     * subtrees below each prefix as separate tasks. The workers share the length
+     * bound and a stop flag: without a listener the first solution stops everyone;
+     * with one, every solution lowers the bound for all workers, as in solveAnytime.
+     *
+     * @param cube     The cube to solve (as piece representation)
+     * @param maxDepth Max total solution length to search for
+     * @param timeOut  Timeout in seconds (shifted left 10 bits for milliseconds)
+     * @param pool     Workers to search on
+     * @param listener null to return the first solution, otherwise receives each
+     *                 improved solution (one call at a time)
+     * @return Solution string, or "Error N" if solving fails
+     */
+    public static String solveParallel(Cubie cube, int maxDepth, long timeOut, ForkJoinPool pool,
+                                       SolutionListener listener) {
+        return solveParallel(cube, maxDepth, timeOut, pool, listener, null);
+    }
 
-                // Compute coordinates and heuristic for current move
-                int moveIndex = 3 * faceIndex[depth] + turnCount[depth] - 1;
-                edgeOrient[depth + 1] = Tables.flipMove[edgeOrient[depth]][moveIndex];
-                cornerOrient[depth + 1] = Tables.twistMove[cornerOrient[depth]][moveIndex];
-                slicePos[depth + 1] = Tables.sliceMove[slicePos[depth] * 24][moveIndex] / 24;
-
-                minDistPhase1[depth + 1] = Math.max(
-                    Tables.getPruning(Tables.sliceFlipPrune, Tables.N_SLICE1 * edgeOrient[depth + 1] + slicePos[depth + 1]),
-                    Tables.getPruning(Tables.sliceTwistPrune, Tables.N_SLICE1 * cornerOrient[depth + 1] + slicePos[depth + 1]));
-
-                // Check if we reached G1 (heuristic = 0) at the target depth
-                if (minDistPhase1[depth + 1] == 0 && depth == depthPhase1 - 1) {
-                    // Try phase 2
-                    result = totalDepth(depthPhase1, maxDepth);
-                    if (result >= 0) {
-                        // Verify no redundant consecutive moves at phase boundary
-                        if (result == depthPhase1 || (faceIndex[depthPhase1 - 1] != faceIndex[depthPhase1] && faceIndex[depthPhase1 - 1] != faceIndex[depthPhase1] + 3)) {
-                            return solutionToString(result);
-                        }
+    /**
+     * Parallel solve that also reports progress after every phase 1 depth.
+     * See solveParallel(cube, maxDepth, timeOut, pool, listener).
+     */
+    public static String solveParallel(Cubie cube, int maxDepth, long timeOut, ForkJoinPool pool,
+                                       SolutionListener listener, SolveProgressListener progress) {
+        // Contexts of this solve only: the caller's thread-local context may be in use
+        // by a search the caller (e.g. a pool worker) is running
+        SolveContext root = new SolveContext();
+        int error = start(cube, root);
+        if (error != 0) return "Error " + error;
+        root.solveCache = root.cacheForSolve();  // Shared by the workers through copyStart
+        Queue<SolveContext> contexts = new ConcurrentLinkedQueue<>();
+
+        Search search = new Search(maxDepth, timeOut, listener, progress);
+        search.startClock();
+        for (int depthPhase1 = 1; depthPhase1 <= search.maxLength && !search.stopped; depthPhase1++) {
+            // The last move of phase 1 must stay in the subtree; it's what reaches G1
+            int[][] prefixes = PREFIXES[Math.min(SPLIT_DEPTH, depthPhase1 - 1)];
+            pool.invoke(new SearchPrefixes(root, contexts, search, depthPhase1, prefixes, 0, prefixes.length));
+            search.progress(depthPhase1);
+        }
+        return search.result();
+    }
+
+    /**
+     * Solve the cube by racing six searches on the common ForkJoinPool: the cube
+     * seen along each of the three axes, and its inverse along each axis.
+     */
+    public static String solveRacing(Cubie cube, int maxDepth, long timeOut) {
+        return solveRacing(cube, maxDepth, timeOut, ForkJoinPool.commonPool(), null);
+    }
+
+    /**
+     * Solve the cube by racing six searches on a pool of workers.
+     *
+     * How quickly two-phase finds a short solution depends a lot on which axis it
+     * treats as UD, and solving the inverse cube is a different search that can be
+     * much luckier. The cube is therefore conjugated so that the RL and FB axes play
+     * the UD axis, and the same is done for its inverse. The six searches step
+     * through the phase 1 depths together, each in its own context, and share the
+     * length bound and stop flag: without a listener the first solution wins; with
+     * one, every solution lowers the bound for all six, as in solveAnytime. Moves are
+     * mapped back to the original cube before they are reported or returned.
+     *
+     * @param cube     The cube to solve (as piece representation)
+     * @param maxDepth Max total solution length to search for
+     * @param timeOut  Timeout in seconds (shifted left 10 bits for milliseconds)
+     * @param pool     Workers to search on
+     * @param listener null to return the first solution, otherwise receives each
+     *                 improved solution (one call at a time)
+     * @return Solution string, or "Error N" if solving fails
+     */
+    public static String solveRacing(Cubie cube, int maxDepth, long timeOut, ForkJoinPool pool,
+                                     SolutionListener listener) {
+        return solveRacing(cube, maxDepth, timeOut, pool, listener, null);
+    }
+
+    /**
+     * Racing solve that also reports progress after every phase 1 depth.
+     * See solveRacing(cube, maxDepth, timeOut, pool, listener).
+     */
+    public static String solveRacing(Cubie cube, int maxDepth, long timeOut, ForkJoinPool pool,
+                                     SolutionListener listener, SolveProgressListener progress) {
+        int error = cube.verify();
+        if (error != 0) return "Error " + Math.abs(error);
+
+        // One context per frame, each searched in by one task at a time, and a cache
+        // shared by the six searches; none of them taken from the caller's thread
+        Cubie inverse = cube.inverse();
+        SolveContext[] roots = new SolveContext[2 * RACE_SYMMETRIES.length];
+        for (int i = 0; i < roots.length; i++) {
+            int symmetry = RACE_SYMMETRIES[i % RACE_SYMMETRIES.length];
+            boolean inverted = i >= RACE_SYMMETRIES.length;
+            roots[i] = new SolveContext();
+            start(Symmetry.conjugate(inverted ? inverse : cube, symmetry), roots[i]);
+            roots[i].symmetry = symmetry;
+            roots[i].inverse = inverted;
+            roots[i].solveCache = i == 0 ? roots[0].cacheForSolve() : roots[0].solveCache;
+        }
+
+        Search search = new Search(maxDepth, timeOut, listener, progress);
+        search.startClock();
+        for (int depthPhase1 = 1; depthPhase1 <= search.maxLength && !search.stopped; depthPhase1++) {
+            pool.invoke(new SearchFrames(roots, search, depthPhase1, 0, roots.length));
+            search.progress(depthPhase1);
+        }
+        return search.result();
+    }
+
+    /**
+     * The single-threaded two-phase search behind solve, solveAnytime and solveAsync.
+     * Whether it stops at the first solution depends on the listener of the Search.
+     */
+    private static String search(Cubie cube, SolveContext ctx, Search search) {
+        int error = start(cube, ctx);
+        if (error != 0) return "Error " + error;
+        ctx.solveCache = ctx.cacheForSolve();
+        search.startClock();
+
+        // IDA* outer loop: try increasing depth limits until solution found
+        for (int depthPhase1 = 1; depthPhase1 <= search.maxLength && !search.stopped; depthPhase1++) {
+            phase1(ctx, depthPhase1, 0, search);
+            search.progress(depthPhase1);
+        }
+        return search.result();
+    }
+
+    /**
+     * Validate the cube and set up the start of the search (depth 0) in the context.
+     * Waits for both table groups, so the time budget of a search, which starts
+     * after this, is never spent loading tables.
+     *
+     * @return 0, or the N of "Error N" if the cube can't be solved
+     */
+    private static int start(Cubie cube, SolveContext ctx) {
+        // Validate the cube is solvable
+        int result = cube.verify();
+        if (result != 0) return Math.abs(result);
+        ctx.symmetry = 0;
+        ctx.inverse = false;
+        ctx.cornerReplayed = 0;
+        ctx.edgeReplayed = 0;
+        ctx.phase2Entries = 0;
+        ctx.replayedMoves = 0;
+
+        // Every solution needs phase 2, so the search can't finish before its tables
+        // are loaded anyway; waiting here only gives up the first phase 1 nodes
+        Tables.await(Tables.Group.PHASE2);
+
+        // Extract all coordinates from the input cube
+        // These form the starting point (depth 0) for the search
+        ctx.edgeOrient[0] = cube.getFlip();
+        ctx.cornerOrient[0] = cube.getTwist();
+        ctx.parity[0] = cube.cornerParity();
+        int fullSlice = cube.getSlice();
+        ctx.slicePos[0] = fullSlice / 24;
+        ctx.slicePerm[0] = fullSlice;
+        ctx.cornerPerm[0] = cube.getCornerPerm();
+        ctx.urToUl[0] = cube.getURtoUL();
+        ctx.ubToDf[0] = cube.getUBtoDF();
+        ctx.sliceFlipDist[0] = Tables.getSliceFlipPruning(ctx.edgeOrient[0], ctx.slicePos[0]);
+        ctx.sliceTwistDist[0] = Tables.getSliceTwistPruning(ctx.cornerOrient[0], ctx.slicePos[0]);
+        return 0;
+    }
+
+    /**
+     * Phase 1 IDA* iteration: depth-first search for all phase 1 sequences of exactly
+     * depthPhase1 moves that start with the moves already fixed at depths below
+     * floor, trying phase 2 from every one that reaches G1.
+     */
+    private static void phase1(SolveContext ctx, int depthPhase1, int floor, Search search) {
+        // Initialize search at the first free depth
+        int depth = floor;
+        ctx.faceIndex[depth] = 0;
+        // Skip invalid faces (same as previous, or opposite in wrong order)
+        while (depth > 0 && (ctx.faceIndex[depth - 1] == ctx.faceIndex[depth] || ctx.faceIndex[depth - 1] - 3 == ctx.faceIndex[depth])) {
+            ctx.faceIndex[depth]++;
+        }
+        ctx.turnCount[depth] = 1;
+
+        // DFS search at current depth limit
+        while (depth >= floor) {
+
+            // Check whether another worker (or a cancel) has ended the search, or the time is up
+            if (search.stop(ctx)) break;
+
+            // Compute coordinates and heuristic for current move
+            phase1Move(ctx, depth);
+
+            // Check if we reached G1 (heuristic = 0) at the target depth
+            if (ctx.minDistPhase1[depth + 1] == 0 && depth == depthPhase1 - 1) {
+                // Try phase 2
+                int result = totalDepth(ctx, depthPhase1, search);
+                if (result >= 0) {
+                    // Verify no redundant consecutive moves at phase boundary
+                    if (result == depthPhase1 || (ctx.faceIndex[depthPhase1 - 1] != ctx.faceIndex[depthPhase1] && ctx.faceIndex[depthPhase1 - 1] != ctx.faceIndex[depthPhase1] + 3)) {
+                        search.found(solutionToString(ctx, result), result);
+                        // Only shorter solutions are interesting from now on
+                        if (search.stopped || depthPhase1 > search.maxLength) break;
                     }
                 }
+            }
 
-                // Can we go deeper? Check if remaining depth budget > heuristic estimate
-                if (depth < depthPhase1 - 1 && depthPhase1 - depth - 1 >= minDistPhase1[depth + 1]) {
-                    // Go deeper: pick first valid face (avoid same/opposite as previous)
-                    depth++;
-                    faceIndex[depth] = 0;
-                    // Skip invalid faces (same as previous, or opposite in wrong order)
-                    while (faceIndex[depth - 1] == faceIndex[depth] || faceIndex[depth - 1] - 3 == faceIndex[depth]) {
-                        faceIndex[depth]++;
-                    }
-                    turnCount[depth] = 1;
-                } else {
-                    // Can't go deeper or already at max depth - try next move at current level
-                    // Advance to next move: increment turnCount, then faceIndex if needed
-                    boolean foundNext = false;
-                    while (!foundNext && depth >= 0) {
-                        turnCount[depth]++;
-                        if (turnCount[depth] > 3) {
-                            // Try next face
-                            turnCount[depth] = 1;
-                            faceIndex[depth]++;
-                            // Skip invalid faces
-                            while (depth > 0 && faceIndex[depth] <= 5 && (faceIndex[depth - 1] == faceIndex[depth] || faceIndex[depth - 1] - 3 == faceIndex[depth])) {
-                                faceIndex[depth]++;
-                            }
-                            if (faceIndex[depth] > 5) {
-                                // No more moves at this level - backtrack
-                                depth--;
-                            } else {
-                                foundNext = true;
-                            }
+            // Can we go deeper? Check if remaining depth budget > heuristic estimate
+            if (depth < depthPhase1 - 1 && depthPhase1 - depth - 1 >= ctx.minDistPhase1[depth + 1]) {
+                // Go deeper: pick first valid face (avoid same/opposite as previous)
+                depth++;
+                ctx.faceIndex[depth] = 0;
+                // Skip invalid faces (same as previous, or opposite in wrong order)
+                while (ctx.faceIndex[depth - 1] == ctx.faceIndex[depth] || ctx.faceIndex[depth - 1] - 3 == ctx.faceIndex[depth]) {
+                    ctx.faceIndex[depth]++;
+                }
+                ctx.turnCount[depth] = 1;
+            } else {
+                // Can't go deeper or already at max depth - try next move at current level
+                // Advance to next move: increment turnCount, then faceIndex if needed
+                boolean foundNext = false;
+                while (!foundNext && depth >= floor) {
+                    ctx.turnCount[depth]++;
+                    if (ctx.turnCount[depth] > 3) {
+                        // Try next face
+                        ctx.turnCount[depth] = 1;
+                        ctx.faceIndex[depth]++;
+                        // Skip invalid faces
+                        while (depth > 0 && ctx.faceIndex[depth] <= 5 && (ctx.faceIndex[depth - 1] == ctx.faceIndex[depth] || ctx.faceIndex[depth - 1] - 3 == ctx.faceIndex[depth])) {
+                            ctx.faceIndex[depth]++;
+                        }
+                        if (ctx.faceIndex[depth] > 5) {
+                            // No more moves at this level - backtrack
+                            depth--;
                         } else {
                             foundNext = true;
                         }
+                    } else {
+                        foundNext = true;
                     }
                 }
             }
+        }
+        search.flushNodes(ctx);
+    }
 
-            // No solution at this depth - increase limit
-            depthPhase1++;
+    /**
+     * Apply the move at the given depth to the phase 1 coordinates and compute the
+     * heuristic of the resulting position (stored at depth + 1).
+     */
+    private static void phase1Move(SolveContext ctx, int depth) {
+        int moveIndex = 3 * ctx.faceIndex[depth] + ctx.turnCount[depth] - 1;
+        // The phase 2 coordinates below this depth are now stale
+        if (ctx.cornerReplayed > depth) ctx.cornerReplayed = depth;
+        if (ctx.edgeReplayed > depth) ctx.edgeReplayed = depth;
+        ctx.edgeOrient[depth + 1] = Tables.moves.flip(ctx.edgeOrient[depth], moveIndex);
+        ctx.cornerOrient[depth + 1] = Tables.moves.twist(ctx.cornerOrient[depth], moveIndex);
+        ctx.slicePos[depth + 1] = Tables.moves.slice(ctx.slicePos[depth] * 24, moveIndex) / 24;
+
+        ctx.sliceFlipDist[depth + 1] = Tables.getPruning(Tables.sliceFlipPrune,
+            Tables.N_SLICE1 * ctx.edgeOrient[depth + 1] + ctx.slicePos[depth + 1], ctx.sliceFlipDist[depth]);
+        ctx.sliceTwistDist[depth + 1] = Tables.getPruning(Tables.sliceTwistPrune,
+            Tables.N_SLICE1 * ctx.cornerOrient[depth + 1] + ctx.slicePos[depth + 1], ctx.sliceTwistDist[depth]);
+        ctx.minDistPhase1[depth + 1] = Math.max(ctx.sliceFlipDist[depth + 1], ctx.sliceTwistDist[depth + 1]);
+        if (Tables.SYM_PHASE1) {
+            ctx.minDistPhase1[depth + 1] = Math.max(ctx.minDistPhase1[depth + 1],
+                Tables.getSymPhase1Pruning(ctx.cornerOrient[depth + 1], ctx.edgeOrient[depth + 1], ctx.slicePos[depth + 1]));
+        }
+    }
+
+    /**
+     * State shared by everything searching for one cube: the bound on the solution
+     * length, the best solution so far and whether the search is over. In a parallel
+     * search all workers share one instance.
+     */
+    private static final class Search {
+        final long timeOut;               // Time budget, in seconds shifted left 10 bits
+        long deadline = Long.MAX_VALUE;   // System.currentTimeMillis() after which the search stops
+        final SolutionListener listener;  // null: the first solution ends the search
+        final SolveProgressListener progress;  // May be null
+        final LongAdder nodes = new LongAdder();  // Phase 1 and phase 2 nodes expanded by all workers
+
+        volatile int maxLength;           // Max total length of solutions still worth finding
+        volatile boolean stopped;         // Solution found (first-solution mode), listener stop or timeout
+        private boolean timedOut;
+        private String best;
+
+        Search(int maxDepth, long timeOut, SolutionListener listener, SolveProgressListener progress) {
+            this.timeOut = timeOut;
+            this.listener = listener;
+            this.progress = progress;
+            this.maxLength = maxDepth;
+        }
+
+        /** Start the time budget; called once the tables are loaded, before the first node. */
+        void startClock() {
+            deadline = System.currentTimeMillis() + (timeOut << 10);
+        }
+
+        /**
+         * Count a search node of the context and check whether the search is over:
+         * the stop flag at every node, the clock every CHECK_INTERVAL nodes.
+         */
+        boolean stop(SolveContext ctx) {
+            if (stopped) return true;
+            if (++ctx.uncountedNodes == CHECK_INTERVAL) {
+                flushNodes(ctx);
+                if (System.currentTimeMillis() > deadline) {
+                    timeOut();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Add the nodes the context expanded since the last check to the total. */
+        void flushNodes(SolveContext ctx) {
+            nodes.add(ctx.uncountedNodes);
+            ctx.uncountedNodes = 0;
+        }
+
+        /** Record a solution; called by whichever worker found it. */
+        synchronized void found(String solution, int length) {
+            // Another worker may have found one at least as short in the meantime
+            if (stopped || length > maxLength) return;
+
+            best = solution;
+            maxLength = length - 1;
+            if (listener == null || !listener.onSolution(solution, length)) stopped = true;
+        }
+
+        synchronized void timeOut() {
+            timedOut = true;
+            stopped = true;
+        }
+
+        /** End the search without a timeout, e.g. because its future was cancelled. */
+        void cancel() {
+            stopped = true;
+        }
+
+        /** Report a finished phase 1 depth to the progress listener. */
+        void progress(int depthPhase1) {
+            if (progress == null) return;
+            int bestLength;
+            synchronized (this) {
+                bestLength = best != null ? maxLength + 1 : -1;
+            }
+            progress.onProgress(depthPhase1, nodes.sum(), bestLength);
+        }
+
+        /** The best solution, or the error code for why there is none. */
+        synchronized String result() {
+            if (best != null) return best;
+            return timedOut ? "Error 8" : "Error 7";  // Timeout, or exceeded max depth
+        }
+    }
+
+    /** All n-move sequences the search can generate, as {face, turnCount} pairs. */
+    static int[][] movePrefixes(int n) {
+        return n <= SPLIT_DEPTH ? PREFIXES[n] : extendPrefixes(movePrefixes(n - 1));
+    }
+
+    /** Extend every prefix by one move, following the same face ordering rules as the search. */
+    private static int[][] extendPrefixes(int[][] shorter) {
+        List<int[]> result = new ArrayList<>();
+        for (int[] prefix : shorter) {
+            int n = prefix.length / 2;
+            for (int face = 0; face < 6; face++) {
+                // Skip invalid faces (same as previous, or opposite in wrong order)
+                if (n > 0 && (prefix[2 * n - 2] == face || prefix[2 * n - 2] - 3 == face)) continue;
+                for (int turn = 1; turn <= 3; turn++) {
+                    int[] longer = Arrays.copyOf(prefix, prefix.length + 2);
+                    longer[2 * n] = face;
+                    longer[2 * n + 1] = turn;
+                    result.add(longer);
+                }
+            }
+        }
+        return result.toArray(new int[0][]);
+    }
+
+    /**
+     * Searches the phase 1 subtrees below prefixes [from, to), splitting the range
+     * in halves so idle workers can steal subtrees from busy ones.
+     *
+     * Every subtree is searched in a context borrowed from the solve's queue of idle
+     * contexts, not in a thread-local one: a worker waiting in invokeAll runs other
+     * tasks in between, which would overwrite the search state of the task it's
+     * waiting in.
+     */
+    @SuppressWarnings("serial")  // Fork-join tasks are never serialized
+    private static final class SearchPrefixes extends RecursiveAction {
+        private final SolveContext root;
+        private final Queue<SolveContext> contexts;
+        private final Search search;
+        private final int depthPhase1;
+        private final int[][] prefixes;
+        private final int from, to;
+
+        SearchPrefixes(SolveContext root, Queue<SolveContext> contexts, Search search, int depthPhase1,
+                       int[][] prefixes, int from, int to) {
+            this.root = root;
+            this.contexts = contexts;
+            this.search = search;
+            this.depthPhase1 = depthPhase1;
+            this.prefixes = prefixes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SearchPrefixes(root, contexts, search, depthPhase1, prefixes, from, mid),
+                          new SearchPrefixes(root, contexts, search, depthPhase1, prefixes, mid, to));
+                return;
+            }
+            if (from == to || search.stopped) return;
+
+            // Search in a context no other task is using, starting from the root's position
+            SolveContext ctx = contexts.poll();
+            if (ctx == null) ctx = new SolveContext();
+            ctx.copyStart(root);
+            try {
+                // Apply the prefix, dropping it if the heuristic already rules it out
+                int[] prefix = prefixes[from];
+                int length = prefix.length / 2;
+                for (int depth = 0; depth < length; depth++) {
+                    ctx.faceIndex[depth] = prefix[2 * depth];
+                    ctx.turnCount[depth] = prefix[2 * depth + 1];
+                    phase1Move(ctx, depth);
+                    if (depthPhase1 - depth - 1 < ctx.minDistPhase1[depth + 1]) return;
+                }
+                phase1(ctx, depthPhase1, length, search);
+            } finally {
+                contexts.offer(ctx);
+            }
         }
+    }
+
+    /**
+     * Searches one phase 1 depth of the relabelled cubes [from, to) of solveRacing,
+     * splitting the range in halves down to a single cube per task. Each cube is
+     * searched in its own root context: the search leaves depth 0 as it is, and a
+     * depth is finished before the next one starts.
+     */
+    @SuppressWarnings("serial")  // Fork-join tasks are never serialized
+    private static final class SearchFrames extends RecursiveAction {
+        private final SolveContext[] roots;
+        private final Search search;
+        private final int depthPhase1;
+        private final int from, to;
+
+        SearchFrames(SolveContext[] roots, Search search, int depthPhase1, int from, int to) {
+            this.roots = roots;
+            this.search = search;
+            this.depthPhase1 = depthPhase1;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SearchFrames(roots, search, depthPhase1, from, mid),
+                          new SearchFrames(roots, search, depthPhase1, mid, to));
+                return;
+            }
+            if (from == to || search.stopped) return;
 
-        return "Error 7";  // Exceeded max depth
+            phase1(roots[from], depthPhase1, 0, search);
+        }
     }
 
     /**
@@ -181,117 +681,186 @@ public class TwoPhase {
      * - U, D: all turns (1, 2, 3 quarter turns)
      * - R, F, L, B: only half turns (180°)
      *
+     * @param ctx         Search state, holding the phase 1 moves
      * @param depthPhase1 Number of moves used in phase 1
-     * @param maxDepth    Maximum total solution length
-     * @return Total solution length (phase1 + phase2), or -1 if no solution found
+     * @param search      The search, bounding the total solution length and its time
+     * @return Total solution length (phase1 + phase2), or -1 if no solution found or
+     *         the search was stopped
      */
-    static int totalDepth(int depthPhase1, int maxDepth) {
+    private static int totalDepth(SolveContext ctx, int depthPhase1, Search search) {
         int moveIndex, cornerDist, edgeDist;
-        int maxDepthPhase2 = Math.min(10, maxDepth - depthPhase1);
-
-        // Replay phase 1 moves to compute phase 2 starting coordinates
-        for (int i = 0; i < depthPhase1; i++) {
-            moveIndex = 3 * faceIndex[i] + turnCount[i] - 1;
-            cornerPerm[i + 1] = Tables.cornerPermMove[cornerPerm[i]][moveIndex];
-            slicePerm[i + 1] = Tables.sliceMove[slicePerm[i]][moveIndex];
-            parity[i + 1] = Tables.parityMove[parity[i]][moveIndex];
+        int maxDepthPhase2 = Math.min(10, search.maxLength - depthPhase1);
+
+        // Replay the phase 1 moves changed since the last phase 2 entry to compute the
+        // phase 2 starting coordinates. Sibling G1 positions share all but the last
+        // few moves, so this is usually one or two moves instead of depthPhase1.
+        ctx.phase2Entries++;
+        ctx.replayedMoves += depthPhase1 - ctx.cornerReplayed;
+        for (int i = ctx.cornerReplayed; i < depthPhase1; i++) {
+            moveIndex = 3 * ctx.faceIndex[i] + ctx.turnCount[i] - 1;
+            ctx.cornerPerm[i + 1] = Tables.moves.cornerPerm(ctx.cornerPerm[i], moveIndex);
+            ctx.slicePerm[i + 1] = Tables.moves.slice(ctx.slicePerm[i], moveIndex);
+            ctx.parity[i + 1] = Tables.parityMove[ctx.parity[i]][moveIndex];
         }
+        // The phase 2 search below overwrites the deeper entries
+        ctx.cornerReplayed = depthPhase1;
 
         // Early pruning: check corner+slice heuristic
-        cornerDist = Tables.getPruning(Tables.sliceCornerPrune,
-            (Tables.N_SLICE2 * cornerPerm[depthPhase1] + slicePerm[depthPhase1]) * 2 + parity[depthPhase1]);
+        cornerDist = Tables.getSliceCornerPruning(ctx.cornerPerm[depthPhase1], ctx.slicePerm[depthPhase1], ctx.parity[depthPhase1]);
+        ctx.sliceCornerDist[depthPhase1] = cornerDist;
         if (cornerDist > maxDepthPhase2)
             return -1;
 
         // Compute edge permutation coordinate
-        for (int i = 0; i < depthPhase1; i++) {
-            moveIndex = 3 * faceIndex[i] + turnCount[i] - 1;
-            urToUl[i + 1] = Tables.urToUlMove[urToUl[i]][moveIndex];
-            ubToDf[i + 1] = Tables.ubToDfMove[ubToDf[i]][moveIndex];
+        ctx.replayedMoves += depthPhase1 - ctx.edgeReplayed;
+        for (int i = ctx.edgeReplayed; i < depthPhase1; i++) {
+            moveIndex = 3 * ctx.faceIndex[i] + ctx.turnCount[i] - 1;
+            ctx.urToUl[i + 1] = Tables.moves.urToUl(ctx.urToUl[i], moveIndex);
+            ctx.ubToDf[i + 1] = Tables.moves.ubToDf(ctx.ubToDf[i], moveIndex);
         }
-        udEdgePerm[depthPhase1] = Tables.mergeURtoULandUBtoDF[urToUl[depthPhase1]][ubToDf[depthPhase1]];
+        ctx.edgeReplayed = depthPhase1;
+        ctx.udEdgePerm[depthPhase1] = Tables.moves.merge(ctx.urToUl[depthPhase1], ctx.ubToDf[depthPhase1]);
 
         // Early pruning: check edge+slice heuristic
-        edgeDist = Tables.getPruning(Tables.sliceEdgePrune,
-            (Tables.N_SLICE2 * udEdgePerm[depthPhase1] + slicePerm[depthPhase1]) * 2 + parity[depthPhase1]);
+        edgeDist = Tables.getSliceEdgePruning(ctx.udEdgePerm[depthPhase1], ctx.slicePerm[depthPhase1], ctx.parity[depthPhase1]);
+        ctx.sliceEdgeDist[depthPhase1] = edgeDist;
         if (edgeDist > maxDepthPhase2)
             return -1;
 
+        // Early pruning: check corner+edge heuristic (LARGE tier)
+        if (Tables.CORNER_EDGE_PHASE2) {
+            edgeDist = Math.max(edgeDist, Tables.getCornerEdgePruning(ctx.cornerPerm[depthPhase1], ctx.udEdgePerm[depthPhase1]));
+            if (edgeDist > maxDepthPhase2)
+                return -1;
+        }
+
         // Check if already solved
         if (Math.max(cornerDist, edgeDist) == 0)
             return depthPhase1;
 
-        // IDA* outer loop for phase 2
+        // Look the position up: a cached solution or proven lower bound saves the search
         int depthPhase2 = 1;
+        Phase2Cache cache = ctx.solveCache;
+        long key = 0;
+        if (cache != null) {
+            key = Phase2Cache.key(ctx.cornerPerm[depthPhase1], ctx.udEdgePerm[depthPhase1],
+                ctx.slicePerm[depthPhase1], ctx.parity[depthPhase1]);
+            long entry = cache.get(key);
+            if (entry >= 0 && Phase2Cache.isSolution(entry)) {
+                cache.hit();
+                int length = Phase2Cache.length(entry);
+                if (length > maxDepthPhase2) return -1;
+                Phase2Cache.copyMoves(entry, ctx, depthPhase1);
+                return depthPhase1 + length;
+            }
+            if (entry >= 0 && Phase2Cache.length(entry) > maxDepthPhase2) {
+                cache.hit();
+                return -1;
+            }
+            cache.miss();
+            // No solution is shorter than the bound, so the search can start there
+            if (entry >= 0) depthPhase2 = Phase2Cache.length(entry);
+        }
+
+        int length = phase2(ctx, depthPhase1, depthPhase2, maxDepthPhase2, search);
+        if (length == STOPPED) return -1;  // Unfinished: proves nothing worth caching
+        if (cache != null) {
+            cache.put(key, length >= 0 ? Phase2Cache.solution(ctx, depthPhase1, length)
+                                       : Phase2Cache.lowerBound(maxDepthPhase2 + 1));
+        }
+        return length < 0 ? -1 : depthPhase1 + length;
+    }
+
+    /**
+     * Phase 2 IDA*: search for the shortest phase 2 solution from the G1 position at
+     * depthPhase1, trying lengths minLength to maxDepthPhase2. Its nodes count
+     * towards the same deadline checks as phase 1, so a long phase 2 search doesn't
+     * hold up a timeout or cancel.
+     *
+     * @return Number of phase 2 moves (stored in ctx from depthPhase1), -1 if none,
+     *         or STOPPED if the search ended first
+     */
+    private static int phase2(SolveContext ctx, int depthPhase1, int minLength, int maxDepthPhase2, Search search) {
+        int moveIndex;
+
+        // IDA* outer loop for phase 2
+        int depthPhase2 = minLength;
         while (depthPhase2 <= maxDepthPhase2) {
 
             // Initialize search at phase 1 end point
             int depth = depthPhase1;
-            faceIndex[depth] = 0;
-            turnCount[depth] = 1;
+            ctx.faceIndex[depth] = 0;
+            ctx.turnCount[depth] = 1;
 
             // DFS search at current depth limit
             while (depth >= depthPhase1) {
+                if (search.stop(ctx)) return STOPPED;
 
                 // Compute coordinates and heuristic for current move
-                moveIndex = 3 * faceIndex[depth] + turnCount[depth] - 1;
-                cornerPerm[depth + 1] = Tables.cornerPermMove[cornerPerm[depth]][moveIndex];
-                slicePerm[depth + 1] = Tables.sliceMove[slicePerm[depth]][moveIndex];
-                parity[depth + 1] = Tables.parityMove[parity[depth]][moveIndex];
-                udEdgePerm[depth + 1] = Tables.udEdgePermMove[udEdgePerm[depth]][moveIndex];
-
-                minDistPhase2[depth + 1] = Math.max(
-                    Tables.getPruning(Tables.sliceEdgePrune,
-                        (Tables.N_SLICE2 * udEdgePerm[depth + 1] + slicePerm[depth + 1]) * 2 + parity[depth + 1]),
-                    Tables.getPruning(Tables.sliceCornerPrune,
-                        (Tables.N_SLICE2 * cornerPerm[depth + 1] + slicePerm[depth + 1]) * 2 + parity[depth + 1]));
+                moveIndex = 3 * ctx.faceIndex[depth] + ctx.turnCount[depth] - 1;
+                ctx.cornerPerm[depth + 1] = Tables.moves.cornerPerm(ctx.cornerPerm[depth], moveIndex);
+                ctx.slicePerm[depth + 1] = Tables.moves.slice(ctx.slicePerm[depth], moveIndex);
+                ctx.parity[depth + 1] = Tables.parityMove[ctx.parity[depth]][moveIndex];
+                ctx.udEdgePerm[depth + 1] = Tables.moves.udEdgePerm(ctx.udEdgePerm[depth], moveIndex);
+
+                ctx.sliceEdgeDist[depth + 1] = Tables.getPruning(Tables.sliceEdgePrune,
+                    (Tables.N_SLICE2 * ctx.udEdgePerm[depth + 1] + ctx.slicePerm[depth + 1]) * 2 + ctx.parity[depth + 1],
+                    ctx.sliceEdgeDist[depth]);
+                ctx.sliceCornerDist[depth + 1] = Tables.getPruning(Tables.sliceCornerPrune,
+                    (Tables.N_SLICE2 * ctx.cornerPerm[depth + 1] + ctx.slicePerm[depth + 1]) * 2 + ctx.parity[depth + 1],
+                    ctx.sliceCornerDist[depth]);
+                ctx.minDistPhase2[depth + 1] = Math.max(ctx.sliceEdgeDist[depth + 1], ctx.sliceCornerDist[depth + 1]);
+                if (Tables.CORNER_EDGE_PHASE2) {
+                    ctx.minDistPhase2[depth + 1] = Math.max(ctx.minDistPhase2[depth + 1],
+                        Tables.getCornerEdgePruning(ctx.cornerPerm[depth + 1], ctx.udEdgePerm[depth + 1]));
+                }
 
                 // Check if solved (heuristic = 0)
-                if (minDistPhase2[depth + 1] == 0) {
-                    return depthPhase1 + (depth - depthPhase1 + 1);
+                if (ctx.minDistPhase2[depth + 1] == 0) {
+                    return depth - depthPhase1 + 1;
                 }
 
                 // Can we go deeper?
                 if (depth < depthPhase1 + depthPhase2 - 1 &&
-                    depthPhase1 + depthPhase2 - depth - 1 >= minDistPhase2[depth + 1]) {
+                    depthPhase1 + depthPhase2 - depth - 1 >= ctx.minDistPhase2[depth + 1]) {
                     // Go deeper: pick first valid face
                     depth++;
-                    faceIndex[depth] = 0;
+                    ctx.faceIndex[depth] = 0;
                     // Skip invalid faces
-                    while (faceIndex[depth] <= 5 && (faceIndex[depth - 1] == faceIndex[depth] || faceIndex[depth - 1] - 3 == faceIndex[depth])) {
-                        faceIndex[depth]++;
+                    while (ctx.faceIndex[depth] <= 5 && (ctx.faceIndex[depth - 1] == ctx.faceIndex[depth] || ctx.faceIndex[depth - 1] - 3 == ctx.faceIndex[depth])) {
+                        ctx.faceIndex[depth]++;
                     }
                     // Set turnCount based on face (U,D get 1; R,F,L,B get 2)
-                    turnCount[depth] = (faceIndex[depth] == 0 || faceIndex[depth] == 3) ? 1 : 2;
+                    ctx.turnCount[depth] = (ctx.faceIndex[depth] == 0 || ctx.faceIndex[depth] == 3) ? 1 : 2;
                 } else {
                     // Try next move at current level
                     boolean foundNext = false;
                     while (!foundNext && depth >= depthPhase1) {
                         // Advance turnCount (U,D: 1,2,3; R,F,L,B: only 2)
-                        if (faceIndex[depth] == 0 || faceIndex[depth] == 3) {
-                            turnCount[depth]++;
-                            if (turnCount[depth] > 3) {
-                                turnCount[depth] = 1;
-                                faceIndex[depth]++;
+                        if (ctx.faceIndex[depth] == 0 || ctx.faceIndex[depth] == 3) {
+                            ctx.turnCount[depth]++;
+                            if (ctx.turnCount[depth] > 3) {
+                                ctx.turnCount[depth] = 1;
+                                ctx.faceIndex[depth]++;
                             } else {
                                 foundNext = true;
                             }
                         } else {
                             // R,F,L,B only have half turns, so go to next face
-                            faceIndex[depth]++;
+                            ctx.faceIndex[depth]++;
                         }
 
                         if (!foundNext) {
                             // Skip invalid faces
-                            while (depth > depthPhase1 && faceIndex[depth] <= 5 &&
-                                   (faceIndex[depth - 1] == faceIndex[depth] || faceIndex[depth - 1] - 3 == faceIndex[depth])) {
-                                faceIndex[depth]++;
+                            while (depth > depthPhase1 && ctx.faceIndex[depth] <= 5 &&
+                                   (ctx.faceIndex[depth - 1] == ctx.faceIndex[depth] || ctx.faceIndex[depth - 1] - 3 == ctx.faceIndex[depth])) {
+                                ctx.faceIndex[depth]++;
                             }
-                            if (faceIndex[depth] > 5) {
+                            if (ctx.faceIndex[depth] > 5) {
                                 // Backtrack
                                 depth--;
                             } else {
-                                turnCount[depth] = (faceIndex[depth] == 0 || faceIndex[depth] == 3) ? 1 : 2;
+                                ctx.turnCount[depth] = (ctx.faceIndex[depth] == 0 || ctx.faceIndex[depth] == 3) ? 1 : 2;
                                 foundNext = true;
                             }
                         }
@@ -1,6 +1,9 @@
 module com.aaf1007 {
     requires javafx.controls;
     requires javafx.fxml;
+    // Optional: BatchCube uses it only when the JVM runs with --add-modules jdk.incubator.vector.
+    // Compiling against it prints an "incubating module" warning, which is accepted (see README)
+    requires static jdk.incubator.vector;
 
     opens com.aaf1007 to javafx.fxml;
     exports com.aaf1007;